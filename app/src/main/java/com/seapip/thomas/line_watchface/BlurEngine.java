@@ -0,0 +1,148 @@
+package com.seapip.thomas.line_watchface;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.renderscript.Allocation;
+import android.renderscript.Element;
+import android.renderscript.RenderScript;
+import android.renderscript.ScriptIntrinsicBlur;
+
+/**
+ * Blurs bitmaps on a background thread with a single long-lived RenderScript context. The
+ * script and allocations are kept around and only recreated when the input size changes.
+ * Results are delivered on the thread that created the engine.
+ */
+class BlurEngine {
+    private static final float SCALE = 0.5f;
+
+    private final Context mContext;
+    private final HandlerThread mThread;
+    private final Handler mHandler;
+    private final Handler mCallbackHandler;
+    private final Rect mInputRect = new Rect();
+    private RenderScript mRenderScript;
+    private ScriptIntrinsicBlur mScript;
+    private Bitmap mInputBitmap;
+    private Canvas mInputCanvas;
+    private Allocation mInputAllocation;
+    private Allocation mOutputAllocation;
+    private volatile boolean mDestroyed;
+
+    interface Callback {
+        /**
+         * Called with the blurred bitmap, which is owned by the receiver from then on.
+         */
+        void onBlurred(Bitmap bitmap, int token);
+    }
+
+    BlurEngine(Context context) {
+        mContext = context.getApplicationContext();
+        mThread = new HandlerThread("BlurEngine", Process.THREAD_PRIORITY_BACKGROUND);
+        mThread.start();
+        mHandler = new Handler(mThread.getLooper());
+        mCallbackHandler = new Handler();
+    }
+
+    /**
+     * Queues a blur of {@code source}, replacing any blur that hasn't started yet. The source
+     * bitmap is only read and must not be recycled by the caller.
+     */
+    void blur(final Bitmap source, final float radius, final int token, final Callback callback) {
+        mHandler.removeCallbacksAndMessages(null);
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (mDestroyed) {
+                    return;
+                }
+                final Bitmap output = process(source, radius);
+                mCallbackHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (mDestroyed) {
+                            output.recycle();
+                            return;
+                        }
+                        callback.onBlurred(output, token);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Drops pending work and releases the RenderScript context on the blur thread.
+     */
+    void destroy() {
+        mDestroyed = true;
+        mHandler.removeCallbacksAndMessages(null);
+        mCallbackHandler.removeCallbacksAndMessages(null);
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                releaseAllocations();
+                if (mScript != null) {
+                    mScript.destroy();
+                    mScript = null;
+                }
+                if (mRenderScript != null) {
+                    mRenderScript.destroy();
+                    mRenderScript = null;
+                }
+            }
+        });
+        mThread.quitSafely();
+    }
+
+    private Bitmap process(Bitmap source, float radius) {
+        int width = Math.max(1, Math.round(source.getWidth() * SCALE));
+        int height = Math.max(1, Math.round(source.getHeight() * SCALE));
+
+        if (mRenderScript == null) {
+            mRenderScript = RenderScript.create(mContext);
+            mScript = ScriptIntrinsicBlur.create(mRenderScript, Element.U8_4(mRenderScript));
+        }
+        if (mInputBitmap == null || mInputBitmap.getWidth() != width || mInputBitmap.getHeight() != height) {
+            releaseAllocations();
+            mInputBitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            mInputCanvas = new Canvas(mInputBitmap);
+            mInputRect.set(0, 0, width, height);
+            mInputAllocation = Allocation.createFromBitmap(mRenderScript, mInputBitmap);
+            mOutputAllocation = Allocation.createTyped(mRenderScript, mInputAllocation.getType());
+        }
+
+        /* Scale through a canvas so any source config ends up as ARGB_8888 for U8_4. */
+        mInputBitmap.eraseColor(0);
+        mInputCanvas.drawBitmap(source, null, mInputRect, null);
+        mInputAllocation.copyFrom(mInputBitmap);
+
+        mScript.setRadius(radius);
+        mScript.setInput(mInputAllocation);
+        mScript.forEach(mOutputAllocation);
+
+        Bitmap output = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        mOutputAllocation.copyTo(output);
+        return output;
+    }
+
+    private void releaseAllocations() {
+        if (mInputAllocation != null) {
+            mInputAllocation.destroy();
+            mInputAllocation = null;
+        }
+        if (mOutputAllocation != null) {
+            mOutputAllocation.destroy();
+            mOutputAllocation = null;
+        }
+        if (mInputBitmap != null) {
+            mInputBitmap.recycle();
+            mInputBitmap = null;
+            mInputCanvas = null;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.seapip.thomas.line_watchface;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+
+import com.seapip.thomas.line_watchface.core.DrawSurface;
+
+/**
+ * Lets the core renderers draw to the canvas of the current frame or layer.
+ */
+class CanvasSurface implements DrawSurface<Paint> {
+    private Canvas mCanvas;
+
+    CanvasSurface setCanvas(Canvas canvas) {
+        mCanvas = canvas;
+        return this;
+    }
+
+    @Override
+    public void drawLine(float startX, float startY, float stopX, float stopY, Paint paint) {
+        mCanvas.drawLine(startX, startY, stopX, stopY, paint);
+    }
+
+    @Override
+    public void drawLines(float[] points, int offset, int count, Paint paint) {
+        mCanvas.drawLines(points, offset, count, paint);
+    }
+
+    @Override
+    public void drawCircle(float centerX, float centerY, float radius, Paint paint) {
+        mCanvas.drawCircle(centerX, centerY, radius, paint);
+    }
+
+    @Override
+    public void drawArc(float left, float top, float right, float bottom, float startAngle,
+                        float sweepAngle, Paint paint) {
+        mCanvas.drawArc(left, top, right, bottom, startAngle, sweepAngle, false, paint);
+    }
+}
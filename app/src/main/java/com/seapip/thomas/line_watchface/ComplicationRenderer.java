@@ -0,0 +1,378 @@
+package com.seapip.thomas.line_watchface;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.drawable.Icon;
+import android.support.wearable.complications.ComplicationData;
+
+import com.seapip.thomas.line_watchface.core.FaceGeometry;
+import com.seapip.thomas.line_watchface.core.FaceRenderer;
+
+/**
+ * Renders the complication dials for a {@link ComplicationStyle}, through the caches of each
+ * dial: evaluated texts, long text layouts, range arcs and icons. It is only used from the
+ * {@link ComplicationWorker} thread.
+ */
+class ComplicationRenderer {
+    private final IconCache mIconCache;
+    /* Evaluated complication texts, short titles are upper case and long titles aren't. */
+    private final ComplicationTextCache[] mTexts;
+    private final ComplicationTextCache[] mShortTitles;
+    private final ComplicationTextCache[] mLongTitles;
+    private final RangeArcRenderer[] mRangeArcRenderers;
+    /* Layouts of the interactive and ambient variant of each dial, they measure differently. */
+    private final LongTextLayout[] mLongTextLayouts;
+    private final float[] mDialCenter = new float[2];
+    /* Center x, center y and radius of a ranged value dial. */
+    private final float[] mRangeDial = new float[3];
+    /* Maximum width, height and center offset of a long text dial. */
+    private final float[] mLongTextSpace = new float[3];
+    /* Draws the long text border, the geometry of the face itself isn't used. */
+    private final FaceRenderer<Paint> mFaceRenderer = new FaceRenderer<>();
+    private final CanvasSurface mCanvasSurface = new CanvasSurface();
+    /* Icons of the dial being rendered that were left out because they are still loading. */
+    private int mLoadingIcons;
+
+    ComplicationRenderer(Context context, int dials, IconCache iconCache) {
+        mIconCache = iconCache;
+        mTexts = new ComplicationTextCache[dials];
+        mShortTitles = new ComplicationTextCache[dials];
+        mLongTitles = new ComplicationTextCache[dials];
+        mRangeArcRenderers = new RangeArcRenderer[dials];
+        mLongTextLayouts = new LongTextLayout[dials * 2];
+        for (int id = 0; id < dials; id++) {
+            mTexts[id] = new ComplicationTextCache(context, false);
+            mShortTitles[id] = new ComplicationTextCache(context, true);
+            mLongTitles[id] = new ComplicationTextCache(context, false);
+            mRangeArcRenderers[id] = new RangeArcRenderer();
+            mLongTextLayouts[id * 2] = new LongTextLayout();
+            mLongTextLayouts[id * 2 + 1] = new LongTextLayout();
+        }
+    }
+
+    /**
+     * Returns the earliest time a text shown in the dial changes, or {@link Long#MAX_VALUE}.
+     */
+    long getNextChangeTime(ComplicationData data, int id, long currentTimeMillis) {
+        long next = Long.MAX_VALUE;
+        if (data.getType() == ComplicationData.TYPE_SHORT_TEXT) {
+            next = Math.min(next, mTexts[id].getNextChangeTime(data.getShortText(), currentTimeMillis));
+            next = Math.min(next, mShortTitles[id].getNextChangeTime(data.getShortTitle(), currentTimeMillis));
+        } else if (data.getType() == ComplicationData.TYPE_LONG_TEXT) {
+            next = Math.min(next, mTexts[id].getNextChangeTime(data.getLongText(), currentTimeMillis));
+            next = Math.min(next, mLongTitles[id].getNextChangeTime(data.getLongTitle(), currentTimeMillis));
+        }
+        return next;
+    }
+
+    /**
+     * Returns the text of a dial at {@code currentTimeMillis}, or null when its type has none.
+     */
+    String getText(ComplicationData data, int id, long currentTimeMillis) {
+        if (data.getType() == ComplicationData.TYPE_SHORT_TEXT) {
+            return mTexts[id].get(data.getShortText(), currentTimeMillis);
+        } else if (data.getType() == ComplicationData.TYPE_LONG_TEXT) {
+            return mTexts[id].get(data.getLongText(), currentTimeMillis);
+        }
+        return null;
+    }
+
+    /**
+     * Returns the title of a dial at {@code currentTimeMillis}, or null when its type has none.
+     */
+    String getTitle(ComplicationData data, int id, long currentTimeMillis) {
+        if (data.getType() == ComplicationData.TYPE_SHORT_TEXT) {
+            return mShortTitles[id].get(data.getShortTitle(), currentTimeMillis);
+        } else if (data.getType() == ComplicationData.TYPE_LONG_TEXT) {
+            return mLongTitles[id].get(data.getLongTitle(), currentTimeMillis);
+        }
+        return null;
+    }
+
+    /**
+     * Screen area a dial can draw into, with some room for text that is wider than the dial.
+     */
+    void getBounds(ComplicationStyle style, ComplicationData data, int id, boolean bottomDialUsed,
+                   Rect bounds) {
+        float centerX;
+        float centerY;
+        float margin = style.getPalette().getComplicationCirclePaint().getStrokeWidth() + 2;
+        float halfWidth;
+        float halfHeight;
+        if (data.getType() == ComplicationData.TYPE_RANGED_VALUE) {
+            getRangeDial(style, bottomDialUsed, mRangeDial);
+            centerX = mRangeDial[0];
+            centerY = mRangeDial[1];
+            /* The max label starts a few pixels left of the arc. */
+            halfWidth = mRangeDial[2] + 4;
+            halfHeight = mRangeDial[2];
+        } else {
+            FaceGeometry.getDialCenter(id, style.getConfig().isStyleDigital(),
+                    style.getCenterX(), style.getCenterY(), mDialCenter);
+            centerX = mDialCenter[0];
+            centerY = mDialCenter[1];
+            if (data.getType() == ComplicationData.TYPE_LONG_TEXT) {
+                FaceGeometry.getLongTextSpace(style.isRound(), style.getCenterX(), style.getCenterY(), mLongTextSpace);
+                halfWidth = mLongTextSpace[0] / 2;
+                halfHeight = mLongTextSpace[1];
+                centerY += mLongTextSpace[2];
+            } else {
+                halfWidth = style.getCenterX() / 2;
+                halfHeight = style.getCenterX() / 4;
+            }
+        }
+        bounds.set((int) Math.floor(centerX - halfWidth - margin),
+                (int) Math.floor(centerY - halfHeight - margin),
+                (int) Math.ceil(centerX + halfWidth + margin),
+                (int) Math.ceil(centerY + halfHeight + margin));
+    }
+
+    /**
+     * Draws a dial in screen coordinates and writes the area that opens it to {@code tapBox}.
+     * Icons that are still loading are left out, the {@link IconCache} listener is called once
+     * they are available.
+     *
+     * @return the number of icons that were left out
+     */
+    int render(Canvas canvas, ComplicationStyle style, ComplicationData data, long currentTimeMillis,
+               int id, boolean bottomDialUsed, RectF tapBox) {
+        mLoadingIcons = 0;
+        FaceGeometry.getDialCenter(id, style.getConfig().isStyleDigital(),
+                style.getCenterX(), style.getCenterY(), mDialCenter);
+        float centerX = mDialCenter[0];
+        float centerY = mDialCenter[1];
+        switch (data.getType()) {
+            case ComplicationData.TYPE_RANGED_VALUE:
+                drawRangeComplication(canvas, style, data, id, bottomDialUsed, tapBox);
+                break;
+            case ComplicationData.TYPE_SMALL_IMAGE:
+                drawSmallImageComplication(canvas, style, data, centerX, centerY, tapBox);
+                break;
+            case ComplicationData.TYPE_LONG_TEXT:
+                drawLongTextComplication(canvas, style, data, currentTimeMillis, centerX, centerY, id, tapBox);
+                break;
+            case ComplicationData.TYPE_SHORT_TEXT:
+                drawShortTextComplication(canvas, style, data, currentTimeMillis, centerX, centerY, id, tapBox);
+                break;
+            case ComplicationData.TYPE_ICON:
+                drawIconComplication(canvas, style, data, centerX, centerY, tapBox);
+                break;
+        }
+        return mLoadingIcons;
+    }
+
+    private void drawRangeComplication(Canvas canvas, ComplicationStyle style, ComplicationData data,
+                                       int id, boolean bottomDialUsed, RectF tapBox) {
+        Palette palette = style.getPalette();
+        RangeArcRenderer rangeArcRenderer = mRangeArcRenderers[id];
+        rangeArcRenderer.setValues(data.getMinValue(), data.getMaxValue(), data.getValue());
+
+        getRangeDial(style, bottomDialUsed, mRangeDial);
+        float centerX = mRangeDial[0];
+        float centerY = mRangeDial[1];
+        float radius = mRangeDial[2];
+
+        tapBox.set(centerX - radius,
+                centerY - radius,
+                centerX + radius,
+                centerY + radius);
+
+        rangeArcRenderer.draw(canvas, centerX, centerY, radius, 0.05f * style.getCenterX(), 0.15f * style.getCenterX(),
+                palette.getComplicationArcPaint(), palette.getComplicationArcValuePaint());
+
+        Paint minTextPaint = palette.getComplicationTextRightPaint();
+        canvas.drawText(rangeArcRenderer.getMinText(),
+                centerX + -6,
+                centerY - radius - minTextPaint.descent() - minTextPaint.ascent(),
+                minTextPaint);
+
+        canvas.drawText(rangeArcRenderer.getMaxText(),
+                centerX - radius - 4,
+                centerY - 6,
+                palette.getComplicationTextLeftPaint());
+
+        Icon icon = style.isAmbient() && style.isBurnInProtection() ? data.getBurnInProtectionIcon() : data.getIcon();
+        if (icon != null) {
+            int size = (int) Math.round(0.15 * style.getCenterX());
+            drawIcon(canvas, style, icon, Math.round(centerX - size / 2), Math.round(centerY - size / 2), Math.round(centerX + size / 2), Math.round(centerY + size / 2),
+                    palette.getComplicationArcValuePaint().getColor(), 0);
+        } else {
+            canvas.drawText(rangeArcRenderer.getValueText(),
+                    centerX,
+                    centerY - (palette.getComplicationPrimaryTextPaint().descent() + palette.getComplicationPrimaryTextPaint().ascent()) / 2,
+                    palette.getComplicationPrimaryTextPaint());
+        }
+    }
+
+    /**
+     * Writes the center and radius of a ranged value dial to {@code dial}.
+     */
+    private static void getRangeDial(ComplicationStyle style, boolean bottomDialUsed, float[] dial) {
+        FaceGeometry.getRangeDial(bottomDialUsed, style.getConfig().isStyleDigital(), style.isRound(),
+                style.getCenterX(), style.getCenterY(), dial);
+    }
+
+    private void drawLongTextComplication(Canvas canvas, ComplicationStyle style, ComplicationData data,
+                                          long currentTimeMillis, float centerX, float centerY,
+                                          int id, RectF tapBox) {
+        Palette palette = style.getPalette();
+        boolean ambient = style.isAmbient();
+        boolean burnInProtection = style.isBurnInProtection();
+        String textText = mTexts[id].get(data.getLongText(), currentTimeMillis);
+        String titleText = mLongTitles[id].get(data.getLongTitle(), currentTimeMillis);
+        Icon icon = burnInProtection && ambient && data.getBurnInProtectionIcon() != null ? data.getBurnInProtectionIcon() : data.getIcon();
+        Icon image = data.getSmallImage();
+
+        FaceGeometry.getLongTextSpace(style.isRound(), style.getCenterX(), style.getCenterY(), mLongTextSpace);
+        float maxWidth = mLongTextSpace[0];
+        float height = mLongTextSpace[1];
+        centerY += mLongTextSpace[2];
+
+        int imageType = LongTextLayout.IMAGE_NONE;
+        if (image != null && !(ambient && burnInProtection)) {
+            imageType = LongTextLayout.IMAGE_SMALL_IMAGE;
+        } else if (icon != null) {
+            imageType = LongTextLayout.IMAGE_ICON;
+        }
+
+        LongTextLayout layout = mLongTextLayouts[id * 2 + (ambient ? 1 : 0)];
+        layout.measure(textText, titleText, imageType, centerX, centerY, maxWidth, height,
+                (int) Math.round(0.15 * style.getCenterX()), ambient, burnInProtection,
+                palette.getComplicationPrimaryLongTextPaint(), palette.getComplicationLongTextPaint());
+
+        tapBox.set(layout.getBounds());
+
+        if (style.getConfig().hasComplicationBorder()) {
+            RectF bounds = layout.getBounds();
+            mFaceRenderer.drawLongTextBorder(mCanvasSurface.setCanvas(canvas),
+                    bounds.left, bounds.top, bounds.right, bounds.bottom, palette.getComplicationCirclePaint());
+        }
+
+        boolean imageDrawn = false;
+        Rect imageBounds = layout.getImageBounds();
+        if (imageType == LongTextLayout.IMAGE_SMALL_IMAGE) {
+            int flags = IconCache.CIRCLE | (ambient && !style.getConfig().isAmbientColor() ? IconCache.GRAYSCALE : 0);
+            imageDrawn = drawIcon(canvas, style, image, imageBounds.left, imageBounds.top, imageBounds.right, imageBounds.bottom,
+                    IconCache.NO_TINT, flags);
+        } else if (imageType == LongTextLayout.IMAGE_ICON) {
+            imageDrawn = drawIcon(canvas, style, icon, imageBounds.left, imageBounds.top, imageBounds.right, imageBounds.bottom,
+                    palette.getComplicationPrimaryLongTextPaint().getColor(), 0);
+        }
+        layout.layoutText(imageDrawn, palette.getComplicationPrimaryLongTextPaint(), palette.getComplicationLongTextPaint());
+
+        if (layout.getTitle() != null) {
+            canvas.drawText(layout.getTitle(),
+                    layout.getTextX(),
+                    layout.getTitleY(),
+                    palette.getComplicationLongTextPaint());
+        }
+        if (layout.getText() != null) {
+            canvas.drawText(layout.getText(),
+                    layout.getTextX(),
+                    layout.getTextY(),
+                    palette.getComplicationPrimaryLongTextPaint());
+        }
+    }
+
+    private void drawShortTextComplication(Canvas canvas, ComplicationStyle style, ComplicationData data,
+                                           long currentTimeMillis, float centerX, float centerY,
+                                           int id, RectF tapBox) {
+        Palette palette = style.getPalette();
+        String title = mShortTitles[id].get(data.getShortTitle(), currentTimeMillis);
+        String text = mTexts[id].get(data.getShortText(), currentTimeMillis);
+        Icon icon = style.isBurnInProtection() && style.isAmbient() && data.getBurnInProtectionIcon() != null ? data.getBurnInProtectionIcon() : data.getIcon();
+
+        float radius = style.getCenterX() / 4;
+
+        tapBox.set(centerX - radius,
+                centerY - radius,
+                centerX + radius,
+                centerY + radius);
+
+        Paint primaryTextPaint = palette.getComplicationPrimaryTextPaint();
+        float textY = centerY - (primaryTextPaint.descent() + primaryTextPaint.ascent() / 2);
+
+        if (icon != null) {
+            int size = (int) Math.round(0.15 * style.getCenterX());
+            if (drawIcon(canvas, style, icon, Math.round(centerX - size / 2), Math.round(centerY - size - 2), Math.round(centerX + size / 2), Math.round(centerY - 2),
+                    primaryTextPaint.getColor(), 0)) {
+                textY = centerY - primaryTextPaint.descent() - primaryTextPaint.ascent() + 4;
+            }
+        } else if (title != null) {
+            canvas.drawText(title,
+                    centerX,
+                    centerY - palette.getComplicationTextPaint().descent() - palette.getComplicationTextPaint().ascent() + 4,
+                    palette.getComplicationTextPaint());
+            textY = centerY - 4;
+        }
+
+        if (text != null) {
+            canvas.drawText(text,
+                    centerX,
+                    textY,
+                    primaryTextPaint);
+        }
+    }
+
+    private void drawIconComplication(Canvas canvas, ComplicationStyle style, ComplicationData data,
+                                      float centerX, float centerY, RectF tapBox) {
+        float radius = style.getCenterX() / 4;
+
+        tapBox.set(centerX - radius,
+                centerY - radius,
+                centerX + radius,
+                centerY + radius);
+
+        Icon icon = style.isAmbient() && style.isBurnInProtection() ? data.getBurnInProtectionIcon() : data.getSmallImage();
+        if (icon != null) {
+            int size = (int) Math.round(0.15 * style.getCenterX());
+            drawIcon(canvas, style, icon, Math.round(centerX - size), Math.round(centerY - size), Math.round(centerX + size), Math.round(centerY + size),
+                    style.getPalette().getComplicationPrimaryTextPaint().getColor(), 0);
+        }
+    }
+
+    private void drawSmallImageComplication(Canvas canvas, ComplicationStyle style, ComplicationData data,
+                                            float centerX, float centerY, RectF tapBox) {
+        float radius = style.getCenterX() / 4;
+
+        tapBox.set(centerX - radius,
+                centerY - radius,
+                centerX + radius,
+                centerY + radius);
+
+        Icon smallImage = data.getSmallImage();
+        if (smallImage != null && !(style.isAmbient() && style.isBurnInProtection())) {
+            int flags = style.isAmbient() && !style.getConfig().isAmbientColor() ? IconCache.GRAYSCALE : 0;
+            int size = Math.round(radius - style.getPalette().getComplicationCirclePaint().getStrokeWidth() / 2);
+            if (data.getImageStyle() == ComplicationData.IMAGE_STYLE_ICON) {
+                size = (int) Math.round(0.15 * style.getCenterX());
+            } else {
+                flags |= IconCache.CIRCLE;
+            }
+            drawIcon(canvas, style, smallImage, Math.round(centerX - size), Math.round(centerY - size), Math.round(centerX + size), Math.round(centerY + size),
+                    IconCache.NO_TINT, flags);
+        }
+    }
+
+    /**
+     * Draws a complication icon from the icon cache, returns false while it is still loading
+     * and in low-bit ambient mode, which has no images.
+     */
+    private boolean drawIcon(Canvas canvas, ComplicationStyle style, Icon icon, int left, int top,
+                             int right, int bottom, int tint, int flags) {
+        if (style.isLowBitAmbient()) {
+            return false;
+        }
+        Bitmap bitmap = mIconCache.get(icon, right - left, bottom - top, tint, flags);
+        if (bitmap == null) {
+            mLoadingIcons++;
+            return false;
+        }
+        canvas.drawBitmap(bitmap, left, top, null);
+        return true;
+    }
+}
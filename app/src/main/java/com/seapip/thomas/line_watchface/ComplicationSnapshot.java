@@ -0,0 +1,119 @@
+package com.seapip.thomas.line_watchface;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.support.wearable.complications.ComplicationData;
+import android.text.TextUtils;
+
+/**
+ * A dial rendered by the {@link ComplicationWorker}, ready to be drawn with a single blit. Each
+ * variant of a dial has two snapshots: the published one is never changed, the worker renders
+ * into the other one and swaps them. A replaced snapshot only goes back to the worker once the
+ * drawing thread is done with it, so its bitmap is reused instead of allocated again.
+ */
+final class ComplicationSnapshot {
+    private final RectF mTapBox = new RectF();
+    private ComplicationStyle mStyle;
+    private ComplicationData mData;
+    private boolean mBottomDialUsed;
+    private String mText;
+    private String mTitle;
+    private int mLoadingIcons;
+    private Bitmap mBitmap;
+    private Canvas mCanvas;
+    private int mLeft;
+    private int mTop;
+
+    /**
+     * Clears the snapshot for rendering the dial into the given screen area, the bitmap is only
+     * allocated again when the size of the area changed. Only called by the worker while the
+     * snapshot isn't published.
+     *
+     * @return the canvas to render to, in bitmap coordinates
+     */
+    Canvas reset(ComplicationStyle style, ComplicationData data, boolean bottomDialUsed,
+                 String text, String title, Rect bounds) {
+        int width = Math.max(1, bounds.width());
+        int height = Math.max(1, bounds.height());
+        if (mBitmap == null || mBitmap.getWidth() != width || mBitmap.getHeight() != height) {
+            if (mBitmap != null) {
+                mBitmap.recycle();
+            }
+            mBitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            mCanvas = new Canvas(mBitmap);
+        } else {
+            mBitmap.eraseColor(Color.TRANSPARENT);
+        }
+        mStyle = style;
+        mData = data;
+        mBottomDialUsed = bottomDialUsed;
+        mText = text;
+        mTitle = title;
+        mLoadingIcons = 0;
+        mLeft = bounds.left;
+        mTop = bounds.top;
+        mTapBox.setEmpty();
+        return mCanvas;
+    }
+
+    /**
+     * Whether the snapshot was rendered from the same inputs, rendering them again only makes
+     * a difference for icons that were still loading.
+     */
+    boolean matches(ComplicationStyle style, ComplicationData data, boolean bottomDialUsed,
+                    String text, String title) {
+        return style == mStyle && data == mData && bottomDialUsed == mBottomDialUsed &&
+                TextUtils.equals(text, mText) && TextUtils.equals(title, mTitle);
+    }
+
+    ComplicationStyle getStyle() {
+        return mStyle;
+    }
+
+    ComplicationData getData() {
+        return mData;
+    }
+
+    /**
+     * Returns the screen area that opens the complication when tapped, only the worker
+     * modifies it.
+     */
+    RectF getTapBox() {
+        return mTapBox;
+    }
+
+    String getText() {
+        return mText;
+    }
+
+    String getTitle() {
+        return mTitle;
+    }
+
+    /**
+     * Returns the number of icons left out because they were still loading.
+     */
+    int getLoadingIcons() {
+        return mLoadingIcons;
+    }
+
+    void setLoadingIcons(int loadingIcons) {
+        mLoadingIcons = loadingIcons;
+    }
+
+    void draw(Canvas canvas) {
+        canvas.drawBitmap(mBitmap, mLeft, mTop, null);
+    }
+
+    /**
+     * Only called once the snapshot can no longer be drawn or rendered into.
+     */
+    void recycle() {
+        if (mBitmap != null) {
+            mBitmap.recycle();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.seapip.thomas.line_watchface;
+
+/**
+ * Everything besides the complication data a dial is rendered with: the palette, settings,
+ * surface geometry and display state of either the interactive or the ambient face. A new style
+ * is created when one of them changes, so a prepared dial is current as long as it was rendered
+ * with the current style instance.
+ */
+final class ComplicationStyle {
+    private final Palette mPalette;
+    private final WatchFaceConfig mConfig;
+    private final float mCenterX;
+    private final float mCenterY;
+    private final boolean mRound;
+    private final boolean mAmbient;
+    private final boolean mBurnInProtection;
+    private final boolean mLowBitAmbient;
+
+    ComplicationStyle(Palette palette, WatchFaceConfig config, float centerX, float centerY,
+                      boolean round, boolean ambient, boolean burnInProtection, boolean lowBitAmbient) {
+        mPalette = palette;
+        mConfig = config;
+        mCenterX = centerX;
+        mCenterY = centerY;
+        mRound = round;
+        mAmbient = ambient;
+        mBurnInProtection = burnInProtection;
+        mLowBitAmbient = ambient && lowBitAmbient;
+    }
+
+    Palette getPalette() {
+        return mPalette;
+    }
+
+    WatchFaceConfig getConfig() {
+        return mConfig;
+    }
+
+    float getCenterX() {
+        return mCenterX;
+    }
+
+    float getCenterY() {
+        return mCenterY;
+    }
+
+    boolean isRound() {
+        return mRound;
+    }
+
+    boolean isAmbient() {
+        return mAmbient;
+    }
+
+    boolean isBurnInProtection() {
+        return mBurnInProtection;
+    }
+
+    /**
+     * Whether this is the ambient style of a low-bit display, which has no images.
+     */
+    boolean isLowBitAmbient() {
+        return mLowBitAmbient;
+    }
+}
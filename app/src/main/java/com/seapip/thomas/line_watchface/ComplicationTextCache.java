@@ -0,0 +1,101 @@
+package com.seapip.thomas.line_watchface;
+
+import android.content.Context;
+import android.support.wearable.complications.ComplicationText;
+import android.text.TextUtils;
+import android.text.format.DateUtils;
+
+/**
+ * The evaluated string of a {@link ComplicationText}, kept for as long as the text is known not
+ * to change. Time dependent texts (countdowns, time since) are probed one second and one minute
+ * ahead, when the text differs the exact time it changes is searched for so a redraw can be
+ * scheduled for that moment.
+ */
+class ComplicationTextCache {
+    private final Context mContext;
+    private final boolean mUpperCase;
+    private ComplicationText mSource;
+    private CharSequence mText;
+    private String mString;
+    private long mValidFrom;
+    private long mValidUntil;
+    private long mNextChangeTime;
+
+    ComplicationTextCache(Context context, boolean upperCase) {
+        mContext = context;
+        mUpperCase = upperCase;
+    }
+
+    /**
+     * Returns the text at {@code currentTimeMillis}, or null when there is no text.
+     */
+    String get(ComplicationText source, long currentTimeMillis) {
+        update(source, currentTimeMillis);
+        return mString;
+    }
+
+    /**
+     * Returns the time at which the text next changes, or {@link Long#MAX_VALUE} when it
+     * doesn't change within the next minute.
+     */
+    long getNextChangeTime(ComplicationText source, long currentTimeMillis) {
+        update(source, currentTimeMillis);
+        return mNextChangeTime;
+    }
+
+    boolean isValid(ComplicationText source, long currentTimeMillis) {
+        return source == mSource &&
+                currentTimeMillis >= mValidFrom &&
+                currentTimeMillis < mValidUntil;
+    }
+
+    private void update(ComplicationText source, long currentTimeMillis) {
+        if (isValid(source, currentTimeMillis)) {
+            return;
+        }
+        mSource = source;
+        mValidFrom = currentTimeMillis;
+        mValidUntil = Long.MAX_VALUE;
+        mNextChangeTime = Long.MAX_VALUE;
+        if (source == null) {
+            mText = null;
+            mString = null;
+            return;
+        }
+
+        CharSequence text = source.getText(mContext, currentTimeMillis);
+        if (!TextUtils.equals(text, mText)) {
+            mText = text;
+            mString = text == null ? null : mUpperCase ? text.toString().toUpperCase() : text.toString();
+        }
+
+        long second = currentTimeMillis + DateUtils.SECOND_IN_MILLIS;
+        long minute = currentTimeMillis + DateUtils.MINUTE_IN_MILLIS;
+        if (!TextUtils.equals(text, source.getText(mContext, second))) {
+            mNextChangeTime = findChangeTime(source, text, currentTimeMillis, second);
+            mValidUntil = mNextChangeTime;
+        } else if (!TextUtils.equals(text, source.getText(mContext, minute))) {
+            mNextChangeTime = findChangeTime(source, text, second, minute);
+            mValidUntil = mNextChangeTime;
+        } else {
+            /* Static, or changes less than once a minute: look again in a minute. */
+            mValidUntil = minute;
+        }
+    }
+
+    /**
+     * Binary search for the first millisecond after {@code same} at which the text no longer
+     * equals {@code text}, given that it does at {@code different}.
+     */
+    private long findChangeTime(ComplicationText source, CharSequence text, long same, long different) {
+        while (different - same > 1) {
+            long middle = same + (different - same) / 2;
+            if (TextUtils.equals(text, source.getText(mContext, middle))) {
+                same = middle;
+            } else {
+                different = middle;
+            }
+        }
+        return different;
+    }
+}
@@ -0,0 +1,335 @@
+package com.seapip.thomas.line_watchface;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.os.SystemClock;
+import android.support.wearable.complications.ComplicationData;
+import android.text.format.DateUtils;
+
+import com.seapip.thomas.line_watchface.core.FaceGeometry;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Prepares the complication dials on a background thread. When the data or style of a dial
+ * changes it is rendered for both the interactive and the ambient style, including evaluating
+ * and measuring its texts and loading its icons, and published as a {@link ComplicationSnapshot}.
+ * The worker is the only writer of a snapshot slot and swaps it whole, so drawing just reads
+ * the latest snapshot and never waits for a provider or for the worker.
+ * <p>
+ * Texts are prepared again when they change and at least every minute, only for the variant
+ * that is shown, the other one follows when the ambient state changes. A dial is only rendered
+ * and published again when its style, data, texts or loaded icons differ from the published
+ * snapshot. The listener is called on the thread that created the worker, after the replaced
+ * snapshot was handed back to be rendered into next.
+ */
+class ComplicationWorker {
+    private static final int DIALS = 4;
+    /* Bytes of loaded and rendered complication icons to keep. */
+    private static final int ICON_CACHE_SIZE = (int) Math.min(4 * 1024 * 1024, Runtime.getRuntime().maxMemory() / 16);
+
+    interface Listener {
+        void onComplicationPrepared(int id, boolean ambient);
+    }
+
+    private final Context mContext;
+    private final HandlerThread mThread;
+    private final Handler mHandler;
+    private final Handler mCallbackHandler;
+    private final Listener mListener;
+    /* Latest snapshot of each dial, the interactive one at id * 2 and the ambient one after it. */
+    private final AtomicReferenceArray<ComplicationSnapshot> mSnapshots = new AtomicReferenceArray<>(DIALS * 2);
+    /* Replaced snapshots that are no longer drawn, the next snapshot of the slot is rendered into it. */
+    private final AtomicReferenceArray<ComplicationSnapshot> mSpares = new AtomicReferenceArray<>(DIALS * 2);
+    /* When a text in the latest snapshot of each slot changes, also kept when a prepare published nothing new. */
+    private final AtomicLongArray mNextChangeTimes = new AtomicLongArray(DIALS * 2);
+    private final Runnable[] mTextChanges = new Runnable[DIALS];
+    private volatile boolean mDestroyed;
+    private volatile boolean mAmbient;
+
+    /* Only used on the worker thread. */
+    private final ComplicationData[] mData = new ComplicationData[DIALS];
+    private final ComplicationStyle[] mStyles = new ComplicationStyle[2];
+    /* Variants that skipped a text change because they weren't shown. */
+    private final boolean[] mStale = new boolean[DIALS * 2];
+    /* When the texts of a dial are prepared again, in wall clock time. */
+    private final long[] mTextChangeTimes = new long[DIALS];
+    private final Rect mBounds = new Rect();
+    private ComplicationRenderer mRenderer;
+    private IconCache mIconCache;
+
+    ComplicationWorker(Context context, Listener listener) {
+        mContext = context.getApplicationContext();
+        mListener = listener;
+        mThread = new HandlerThread("ComplicationWorker", Process.THREAD_PRIORITY_BACKGROUND);
+        mThread.start();
+        mHandler = new Handler(mThread.getLooper());
+        mCallbackHandler = new Handler();
+        for (int slot = 0; slot < mNextChangeTimes.length(); slot++) {
+            mNextChangeTimes.set(slot, Long.MAX_VALUE);
+        }
+        for (int id = 0; id < DIALS; id++) {
+            final int dial = id;
+            mTextChanges[id] = new Runnable() {
+                @Override
+                public void run() {
+                    prepareTexts(dial);
+                }
+            };
+        }
+        /* The icon cache delivers loaded icons on the thread it is created on. */
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                mIconCache = new IconCache(mContext, ICON_CACHE_SIZE, new IconCache.Listener() {
+                    @Override
+                    public void onIconLoaded() {
+                        prepareAll();
+                    }
+                });
+                mRenderer = new ComplicationRenderer(mContext, DIALS, mIconCache);
+            }
+        });
+    }
+
+    private static int slot(int id, boolean ambient) {
+        return id * 2 + (ambient ? 1 : 0);
+    }
+
+    /**
+     * Returns the latest snapshot of a dial, null when there is nothing to draw. It may have
+     * been rendered with an older style or data than the current ones.
+     */
+    ComplicationSnapshot get(int id, boolean ambient) {
+        return mSnapshots.get(slot(id, ambient));
+    }
+
+    /**
+     * Returns the earliest time a text in a dial changes, or {@link Long#MAX_VALUE}.
+     */
+    long getNextChangeTime(boolean ambient) {
+        long next = Long.MAX_VALUE;
+        for (int id = 0; id < DIALS; id++) {
+            next = Math.min(next, mNextChangeTimes.get(slot(id, ambient)));
+        }
+        return next;
+    }
+
+    void setComplicationData(final int id, final ComplicationData data) {
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                mData[id] = data;
+                prepare(id);
+                /* Ranged value dials grow into the space of an unused bottom dial. */
+                if (id == FaceGeometry.DIAL_BOTTOM) {
+                    for (int dial = 0; dial < DIALS; dial++) {
+                        if (mData[dial] != null && mData[dial].getType() == ComplicationData.TYPE_RANGED_VALUE) {
+                            prepare(dial);
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    void setStyles(final ComplicationStyle interactive, final ComplicationStyle ambient) {
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                mStyles[0] = interactive;
+                mStyles[1] = ambient;
+                prepareAll();
+            }
+        });
+    }
+
+    /**
+     * Sets which variant is shown, text changes are only prepared for that one. A variant that
+     * missed text changes while it was hidden is prepared again.
+     */
+    void setAmbient(final boolean ambient) {
+        mAmbient = ambient;
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                for (int id = 0; id < DIALS; id++) {
+                    if (mStale[slot(id, ambient)]) {
+                        prepare(id, !ambient, ambient);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Prepares the dials with texts that are due to change again, for when the worker thread
+     * may have been asleep with the device.
+     */
+    void refresh() {
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                long now = System.currentTimeMillis();
+                for (int id = 0; id < DIALS; id++) {
+                    if (mData[id] != null && mTextChangeTimes[id] <= now) {
+                        prepareTexts(id);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Drops pending work and releases the snapshots and icons on the worker thread. Pending
+     * publications still run, they recycle the snapshots they replaced instead of handing them
+     * back.
+     */
+    void destroy() {
+        mDestroyed = true;
+        mHandler.removeCallbacksAndMessages(null);
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (mIconCache != null) {
+                    mIconCache.clear();
+                }
+                for (int i = 0; i < mSnapshots.length(); i++) {
+                    recycle(mSnapshots.getAndSet(i, null));
+                    recycle(mSpares.getAndSet(i, null));
+                }
+            }
+        });
+        mThread.quitSafely();
+    }
+
+    private static void recycle(ComplicationSnapshot snapshot) {
+        if (snapshot != null) {
+            snapshot.recycle();
+        }
+    }
+
+    private void prepareAll() {
+        for (int id = 0; id < DIALS; id++) {
+            prepare(id);
+        }
+    }
+
+    private void prepare(int id) {
+        prepare(id, true, true);
+    }
+
+    /**
+     * Prepares the shown variant of a dial for new texts, the other one is marked stale.
+     */
+    private void prepareTexts(int id) {
+        boolean ambient = mAmbient;
+        mStale[slot(id, !ambient)] = true;
+        prepare(id, !ambient, ambient);
+    }
+
+    /**
+     * Renders the given variants of a dial and schedules preparing the texts again at their
+     * next change, or at the next minute for texts that don't tell when they change. A variant
+     * whose published snapshot was rendered from the same inputs is left alone, unless that
+     * snapshot still misses icons.
+     */
+    private void prepare(int id, boolean interactive, boolean ambient) {
+        if (mDestroyed) {
+            return;
+        }
+        mHandler.removeCallbacks(mTextChanges[id]);
+        long now = System.currentTimeMillis();
+        ComplicationData data = mData[id];
+        ComplicationData bottomData = mData[FaceGeometry.DIAL_BOTTOM];
+        boolean bottomDialUsed = bottomData != null &&
+                bottomData.getType() != ComplicationData.TYPE_EMPTY &&
+                bottomData.getType() != ComplicationData.TYPE_NO_DATA &&
+                bottomData.isActive(now);
+        long nextChange = (now / DateUtils.MINUTE_IN_MILLIS + 1) * DateUtils.MINUTE_IN_MILLIS;
+        for (int variant = 0; variant < 2; variant++) {
+            if (!(variant == 0 ? interactive : ambient)) {
+                continue;
+            }
+            int slot = slot(id, variant == 1);
+            mStale[slot] = false;
+            ComplicationStyle style = mStyles[variant];
+            if (data == null || style == null || style.getCenterX() <= 0) {
+                mNextChangeTimes.set(slot, Long.MAX_VALUE);
+                publish(id, variant == 1, null);
+                continue;
+            }
+            long textChange = mRenderer.getNextChangeTime(data, id, now);
+            mNextChangeTimes.set(slot, textChange);
+            nextChange = Math.min(nextChange, textChange);
+            String text = mRenderer.getText(data, id, now);
+            String title = mRenderer.getTitle(data, id, now);
+            ComplicationSnapshot current = mSnapshots.get(slot);
+            boolean unchanged = current != null && current.matches(style, data, bottomDialUsed, text, title);
+            if (unchanged && current.getLoadingIcons() == 0) {
+                continue;
+            }
+            ComplicationSnapshot snapshot = render(slot, style, data, now, id, bottomDialUsed, text, title);
+            if (unchanged && snapshot.getLoadingIcons() >= current.getLoadingIcons()) {
+                /* None of the missing icons arrived, the rendering is the same. */
+                recycle(mSpares.getAndSet(slot, snapshot));
+            } else {
+                publish(id, variant == 1, snapshot);
+            }
+        }
+        mTextChangeTimes[id] = nextChange;
+        if (data != null) {
+            mHandler.postAtTime(mTextChanges[id], SystemClock.uptimeMillis() + Math.max(0, nextChange - now));
+        }
+    }
+
+    /**
+     * Renders into the spare snapshot of the slot, a new one is only created while the drawing
+     * thread hasn't handed the replaced one back yet.
+     */
+    private ComplicationSnapshot render(int slot, ComplicationStyle style, ComplicationData data,
+                                        long now, int id, boolean bottomDialUsed, String text,
+                                        String title) {
+        ComplicationSnapshot snapshot = mSpares.getAndSet(slot, null);
+        if (snapshot == null) {
+            snapshot = new ComplicationSnapshot();
+        }
+        mRenderer.getBounds(style, data, id, bottomDialUsed, mBounds);
+        Canvas canvas = snapshot.reset(style, data, bottomDialUsed, text, title, mBounds);
+        canvas.save();
+        canvas.translate(-mBounds.left, -mBounds.top);
+        snapshot.setLoadingIcons(mRenderer.render(canvas, style, data, now, id, bottomDialUsed, snapshot.getTapBox()));
+        canvas.restore();
+        return snapshot;
+    }
+
+    /**
+     * Swaps in the new snapshot. The replaced one becomes the spare of the slot on the drawing
+     * thread, where it can't be in use anymore.
+     */
+    private void publish(final int id, final boolean ambient, ComplicationSnapshot snapshot) {
+        final int slot = slot(id, ambient);
+        final ComplicationSnapshot previous = mSnapshots.getAndSet(slot, snapshot);
+        if (previous == null && snapshot == null) {
+            return;
+        }
+        mCallbackHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (mDestroyed) {
+                    recycle(previous);
+                    return;
+                }
+                if (previous != null) {
+                    recycle(mSpares.getAndSet(slot, previous));
+                }
+                mListener.onComplicationPrepared(id, ambient);
+            }
+        });
+    }
+}
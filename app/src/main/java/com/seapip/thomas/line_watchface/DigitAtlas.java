@@ -0,0 +1,109 @@
+package com.seapip.thomas.line_watchface;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.Typeface;
+
+/**
+ * The ten digit glyphs of a text paint pre-rendered into one bitmap, so numbers can be drawn
+ * with a few bitmap blits instead of going through text shaping and rasterization every frame.
+ * An atlas is bound to the color, typeface, size and anti-aliasing of the paint it was built
+ * from, {@link #matches(Paint)} tells whether it can still be used for a paint.
+ */
+class DigitAtlas {
+    private static final String DIGITS = "0123456789";
+
+    private final int mColor;
+    private final Typeface mTypeface;
+    private final float mTextSize;
+    private final boolean mAntiAlias;
+    private final Bitmap mBitmap;
+    private final float[] mAdvances = new float[10];
+    private final int[] mCellLefts = new int[10];
+    private final int[] mCellOffsets = new int[10];
+    private final int[] mCellWidths = new int[10];
+    private final int mTop;
+    private final int mHeight;
+    private final Rect mSrc = new Rect();
+    private final Rect mDst = new Rect();
+
+    DigitAtlas(Paint paint) {
+        mColor = paint.getColor();
+        mTypeface = paint.getTypeface();
+        mTextSize = paint.getTextSize();
+        mAntiAlias = paint.isAntiAlias();
+
+        Paint glyphPaint = new Paint(paint);
+        glyphPaint.setTextAlign(Paint.Align.LEFT);
+        Paint.FontMetrics fontMetrics = glyphPaint.getFontMetrics();
+        mTop = (int) Math.floor(fontMetrics.top) - 1;
+        mHeight = (int) Math.ceil(fontMetrics.bottom) + 1 - mTop;
+        glyphPaint.getTextWidths(DIGITS, mAdvances);
+
+        /* Cells cover the glyph bounds as well as the advance, plus a pixel for anti-aliasing. */
+        Rect bounds = new Rect();
+        int width = 0;
+        for (int i = 0; i < 10; i++) {
+            glyphPaint.getTextBounds(DIGITS, i, i + 1, bounds);
+            int left = Math.min(0, bounds.left) - 1;
+            int right = (int) Math.ceil(Math.max(mAdvances[i], bounds.right)) + 1;
+            mCellLefts[i] = left;
+            mCellOffsets[i] = width;
+            mCellWidths[i] = right - left;
+            width += mCellWidths[i];
+        }
+
+        mBitmap = Bitmap.createBitmap(Math.max(1, width), Math.max(1, mHeight), Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(mBitmap);
+        for (int i = 0; i < 10; i++) {
+            canvas.drawText(DIGITS, i, i + 1, mCellOffsets[i] - mCellLefts[i], -mTop, glyphPaint);
+        }
+    }
+
+    boolean matches(Paint paint) {
+        return paint.getColor() == mColor &&
+                paint.getTypeface() == mTypeface &&
+                paint.getTextSize() == mTextSize &&
+                paint.isAntiAlias() == mAntiAlias;
+    }
+
+    void recycle() {
+        mBitmap.recycle();
+    }
+
+    /**
+     * Draws {@code count} characters of {@code text} from {@code index} with their baseline at
+     * {@code y}, aligned on {@code x} like
+     * {@link Canvas#drawText(char[], int, int, float, float, Paint)} would with the paint's
+     * alignment. Text that isn't all digits is drawn with the paint.
+     */
+    void draw(Canvas canvas, char[] text, int index, int count, float x, float y, Paint paint) {
+        float width = 0;
+        for (int i = index; i < index + count; i++) {
+            int digit = text[i] - '0';
+            if (digit < 0 || digit > 9) {
+                canvas.drawText(text, index, count, x, y, paint);
+                return;
+            }
+            width += mAdvances[digit];
+        }
+
+        float penX = x;
+        if (paint.getTextAlign() == Paint.Align.CENTER) {
+            penX -= width / 2;
+        } else if (paint.getTextAlign() == Paint.Align.RIGHT) {
+            penX -= width;
+        }
+        int top = Math.round(y) + mTop;
+        for (int i = index; i < index + count; i++) {
+            int digit = text[i] - '0';
+            int left = Math.round(penX) + mCellLefts[digit];
+            mSrc.set(mCellOffsets[digit], 0, mCellOffsets[digit] + mCellWidths[digit], mHeight);
+            mDst.set(left, top, left + mCellWidths[digit], top + mHeight);
+            canvas.drawBitmap(mBitmap, mSrc, mDst, null);
+            penX += mAdvances[digit];
+        }
+    }
+}
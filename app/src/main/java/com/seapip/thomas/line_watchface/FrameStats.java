@@ -0,0 +1,165 @@
+package com.seapip.thomas.line_watchface;
+
+import java.io.PrintWriter;
+import java.util.Arrays;
+
+/**
+ * Frame time histograms per drawing stage, kept separately for every combination of style,
+ * ambient mode and screen shape. Histograms have fixed quarter octave buckets in microseconds,
+ * so recording a time is a few integer operations. While disabled {@link #begin()} doesn't even
+ * read the clock. Not thread safe, it is only used on the thread of the engine.
+ */
+class FrameStats {
+    static final int STAGE_FRAME = 0;
+    static final int STAGE_BACKGROUND = 1;
+    /* Followed by a stage per dial complication id. */
+    static final int STAGE_COMPLICATION = 2;
+    static final int STAGE_TICKS = 6;
+    static final int STAGE_TIME = 7;
+    static final int STAGE_SECONDS = 8;
+    static final int STAGE_NOTIFICATIONS = 9;
+    private static final int STAGE_COUNT = 10;
+    private static final String[] STAGE_NAMES = {
+            "frame", "background", "complication 0", "complication 1", "complication 2",
+            "complication 3", "ticks", "time", "seconds", "notifications"
+    };
+
+    static final int STYLE_DIGITALOG = 0;
+    static final int STYLE_DIGITAL = 1;
+    static final int STYLE_ANALOG = 2;
+    private static final String[] STYLE_NAMES = {"digitalog", "digital", "analog"};
+    private static final int CONFIGURATION_COUNT = STYLE_NAMES.length * 4;
+
+    /* Quarter octaves from 1us up to about a second. */
+    private static final int BUCKETS = 80;
+
+    private boolean mEnabled;
+    private int mConfiguration;
+    private int[][] mCounts;
+    private long[] mMax;
+    private long[] mTotal;
+
+    void setEnabled(boolean enabled) {
+        mEnabled = enabled;
+        if (enabled && mCounts == null) {
+            mCounts = new int[CONFIGURATION_COUNT * STAGE_COUNT][BUCKETS];
+            mMax = new long[CONFIGURATION_COUNT * STAGE_COUNT];
+            mTotal = new long[CONFIGURATION_COUNT * STAGE_COUNT];
+        }
+    }
+
+    /**
+     * Selects the histograms following stage times are recorded in.
+     */
+    void setConfiguration(int style, boolean ambient, boolean round) {
+        mConfiguration = style * 4 + (ambient ? 2 : 0) + (round ? 1 : 0);
+    }
+
+    /**
+     * Returns the start time of a stage to pass to {@link #end}.
+     */
+    long begin() {
+        return mEnabled ? System.nanoTime() : 0;
+    }
+
+    void end(int stage, long startNanos) {
+        if (!mEnabled || startNanos == 0) {
+            return;
+        }
+        long micros = (System.nanoTime() - startNanos) / 1000;
+        int index = mConfiguration * STAGE_COUNT + stage;
+        mCounts[index][getBucket(micros)]++;
+        mTotal[index]++;
+        if (micros > mMax[index]) {
+            mMax[index] = micros;
+        }
+    }
+
+    void reset() {
+        if (mCounts == null) {
+            return;
+        }
+        for (int i = 0; i < mCounts.length; i++) {
+            Arrays.fill(mCounts[i], 0);
+            mMax[i] = 0;
+            mTotal[i] = 0;
+        }
+    }
+
+    /**
+     * Values below 4us get a bucket each, above that every octave is split in four.
+     */
+    private static int getBucket(long micros) {
+        if (micros < 4) {
+            return (int) Math.max(0, micros);
+        }
+        int octave = 63 - Long.numberOfLeadingZeros(micros);
+        int quarter = (int) (micros >> (octave - 2)) & 3;
+        return Math.min(BUCKETS - 1, (octave - 1) * 4 + quarter);
+    }
+
+    private static long getBucketStart(int bucket) {
+        if (bucket < 4) {
+            return bucket;
+        }
+        return (long) (4 + bucket % 4) << (bucket / 4 - 1);
+    }
+
+    /**
+     * Returns the upper bound of the bucket that holds the given percentile of a stage in the
+     * current configuration, or 0 when nothing was recorded.
+     */
+    long getPercentile(int stage, float percentile) {
+        return mCounts == null ? 0 : getIndexPercentile(mConfiguration * STAGE_COUNT + stage, percentile);
+    }
+
+    long getMax(int stage) {
+        return mCounts == null ? 0 : mMax[mConfiguration * STAGE_COUNT + stage];
+    }
+
+    private long getIndexPercentile(int index, float percentile) {
+        long total = mTotal[index];
+        if (total == 0) {
+            return 0;
+        }
+        long target = (long) Math.ceil(total * percentile);
+        long seen = 0;
+        int[] counts = mCounts[index];
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += counts[bucket];
+            if (seen >= target) {
+                return Math.min(mMax[index], getBucketStart(bucket + 1));
+            }
+        }
+        return mMax[index];
+    }
+
+    void dump(String prefix, PrintWriter writer) {
+        if (mCounts == null) {
+            writer.println(prefix + "Frame stats disabled, enable them in the advanced settings.");
+            return;
+        }
+        writer.println(prefix + "Frame stats" + (mEnabled ? "" : " (paused)") +
+                ", stage times in us as p50/p95/p99/max (count):");
+        for (int configuration = 0; configuration < CONFIGURATION_COUNT; configuration++) {
+            boolean header = false;
+            for (int stage = 0; stage < STAGE_COUNT; stage++) {
+                int index = configuration * STAGE_COUNT + stage;
+                if (mTotal[index] == 0) {
+                    continue;
+                }
+                if (!header) {
+                    writer.println(prefix + "  " + STYLE_NAMES[configuration / 4] +
+                            ((configuration & 2) != 0 ? " ambient" : " interactive") +
+                            ((configuration & 1) != 0 ? " round" : " square"));
+                    header = true;
+                }
+                writer.println(prefix + "    " + STAGE_NAMES[stage] + ": " +
+                        getIndexPercentile(index, 0.5f) + "/" +
+                        getIndexPercentile(index, 0.95f) + "/" +
+                        getIndexPercentile(index, 0.99f) + "/" +
+                        mMax[index] + " (" + mTotal[index] + ")");
+            }
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package com.seapip.thomas.line_watchface;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapShader;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.ColorMatrix;
+import android.graphics.ColorMatrixColorFilter;
+import android.graphics.Paint;
+import android.graphics.Shader;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.graphics.drawable.Icon;
+import android.os.Handler;
+import android.util.LruCache;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Memory bounded cache of complication icons. Icons are loaded with
+ * {@link Icon#loadDrawableAsync} so drawing never waits for a provider, until an icon is loaded
+ * {@link #get} returns null and the listener is called once it is available. Icons are kept
+ * rendered at the size, tint and transforms they are drawn with.
+ */
+class IconCache {
+    static final int NO_TINT = Color.TRANSPARENT;
+    /* Transforms applied when rendering an icon. */
+    static final int CIRCLE = 1;
+    static final int GRAYSCALE = 1 << 1;
+
+    static final ColorMatrixColorFilter GRAYSCALE_FILTER;
+
+    static {
+        ColorMatrix matrix = new ColorMatrix();
+        matrix.setSaturation(0);
+        GRAYSCALE_FILTER = new ColorMatrixColorFilter(matrix);
+    }
+
+    interface Listener {
+        void onIconLoaded();
+    }
+
+    private final Context mContext;
+    private final Handler mHandler;
+    private final Listener mListener;
+    private final LruCache<Object, Drawable> mDrawables;
+    private final LruCache<Key, Bitmap> mBitmaps;
+    private final Set<Object> mPending = new HashSet<>();
+    /*
+     * Sources per icon instance, icons don't override equals so this is an identity lookup. Icons
+     * that are their own source map to SELF, a value referencing the key would never be cleared.
+     */
+    private static final Object SELF = new Object();
+    private final WeakHashMap<Icon, Object> mSources = new WeakHashMap<>();
+    private final Key mLookupKey = new Key();
+    /* Circles are cut out by drawing a circle with the square rendering as shader. */
+    private final Paint mCirclePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private Bitmap mCircleSource;
+    private Canvas mCircleSourceCanvas;
+
+    IconCache(Context context, int maxBytes, Listener listener) {
+        mContext = context;
+        mHandler = new Handler();
+        mListener = listener;
+        mDrawables = new LruCache<Object, Drawable>(maxBytes / 2) {
+            @Override
+            protected int sizeOf(Object key, Drawable drawable) {
+                if (drawable instanceof BitmapDrawable && ((BitmapDrawable) drawable).getBitmap() != null) {
+                    return ((BitmapDrawable) drawable).getBitmap().getByteCount();
+                }
+                return Math.max(1, drawable.getIntrinsicWidth() * drawable.getIntrinsicHeight() * 4);
+            }
+        };
+        mBitmaps = new LruCache<Key, Bitmap>(maxBytes / 2) {
+            @Override
+            protected int sizeOf(Key key, Bitmap bitmap) {
+                return bitmap.getByteCount();
+            }
+
+            @Override
+            protected void entryRemoved(boolean evicted, Key key, Bitmap oldValue, Bitmap newValue) {
+                oldValue.recycle();
+            }
+        };
+    }
+
+    /**
+     * Identifies where an icon is loaded from, so the same resource or uri icon in new
+     * complication data is still found. Other icons carry their own data and are identified by
+     * instance.
+     */
+    private Object getSource(Icon icon) {
+        Object source = mSources.get(icon);
+        if (source == null) {
+            source = describeSource(icon);
+            if (source == null) {
+                source = SELF;
+            }
+            mSources.put(icon, source);
+        }
+        return source == SELF ? icon : source;
+    }
+
+    /**
+     * Returns the description of a resource or uri icon, or null for other icons. Icon has no
+     * public accessor for its type before API 28, so this relies on {@link Icon#toString()}
+     * starting with the type and naming the package and id or the uri. Should that format
+     * change, every icon falls back to being identified by instance. That is still correct, an
+     * icon is then just loaded again for each new complication data. IconCacheTest fails when
+     * the format no longer matches.
+     */
+    static String describeSource(Icon icon) {
+        String description = icon.toString();
+        if (description.startsWith("Icon(typ=RESOURCE") || description.startsWith("Icon(typ=URI")) {
+            return description;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the icon rendered at the given size, tinted unless {@code tint} is
+     * {@link #NO_TINT} and with the {@link #CIRCLE} and {@link #GRAYSCALE} transforms in
+     * {@code flags} applied, or null while it is still loading.
+     */
+    Bitmap get(Icon icon, int width, int height, int tint, int flags) {
+        if (width <= 0 || height <= 0) {
+            return null;
+        }
+        Object source = getSource(icon);
+        mLookupKey.set(source, width, height, tint, flags);
+        Bitmap bitmap = mBitmaps.get(mLookupKey);
+        if (bitmap != null) {
+            return bitmap;
+        }
+        Drawable drawable = getDrawable(icon, source);
+        if (drawable == null) {
+            return null;
+        }
+
+        bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        if ((flags & CIRCLE) != 0) {
+            if (mCircleSource == null || mCircleSource.getWidth() != width || mCircleSource.getHeight() != height) {
+                if (mCircleSource != null) {
+                    mCircleSource.recycle();
+                }
+                mCircleSource = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+                mCircleSourceCanvas = new Canvas(mCircleSource);
+                mCirclePaint.setShader(new BitmapShader(mCircleSource, Shader.TileMode.CLAMP, Shader.TileMode.CLAMP));
+            } else {
+                mCircleSource.eraseColor(Color.TRANSPARENT);
+            }
+            render(drawable, mCircleSourceCanvas, width, height, tint, flags);
+            canvas.drawCircle(width / 2f, height / 2f, width / 2f, mCirclePaint);
+        } else {
+            render(drawable, canvas, width, height, tint, flags);
+        }
+        Key key = new Key();
+        key.set(source, width, height, tint, flags);
+        mBitmaps.put(key, bitmap);
+        return bitmap;
+    }
+
+    /**
+     * Draws the shared drawable with a tint and filter, restoring its state afterwards.
+     */
+    private static void render(Drawable drawable, Canvas canvas, int width, int height, int tint, int flags) {
+        drawable.setBounds(0, 0, width, height);
+        if (tint != NO_TINT) {
+            drawable.setTint(tint);
+        }
+        if ((flags & GRAYSCALE) != 0) {
+            drawable.setColorFilter(GRAYSCALE_FILTER);
+        }
+        drawable.draw(canvas);
+        drawable.setTintList(null);
+        drawable.setColorFilter(null);
+    }
+
+    private Drawable getDrawable(Icon icon, final Object source) {
+        Drawable drawable = mDrawables.get(source);
+        if (drawable != null || mPending.contains(source)) {
+            return drawable;
+        }
+        mPending.add(source);
+        icon.loadDrawableAsync(mContext, new Icon.OnDrawableLoadedListener() {
+            @Override
+            public void onDrawableLoaded(Drawable drawable) {
+                if (!mPending.remove(source)) {
+                    return;
+                }
+                if (drawable != null) {
+                    mDrawables.put(source, drawable);
+                    mListener.onIconLoaded();
+                }
+            }
+        }, mHandler);
+        return null;
+    }
+
+    /**
+     * Drops all icons, loads that are still in flight are ignored.
+     */
+    void clear() {
+        mPending.clear();
+        mDrawables.evictAll();
+        mBitmaps.evictAll();
+        if (mCircleSource != null) {
+            mCircleSource.recycle();
+            mCircleSource = null;
+            mCircleSourceCanvas = null;
+            mCirclePaint.setShader(null);
+        }
+    }
+
+    private static class Key {
+        private Object mSource;
+        private int mWidth;
+        private int mHeight;
+        private int mTint;
+        private int mFlags;
+
+        void set(Object source, int width, int height, int tint, int flags) {
+            mSource = source;
+            mWidth = width;
+            mHeight = height;
+            mTint = tint;
+            mFlags = flags;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return mSource.equals(key.mSource) &&
+                    mWidth == key.mWidth &&
+                    mHeight == key.mHeight &&
+                    mTint == key.mTint &&
+                    mFlags == key.mFlags;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = mSource.hashCode();
+            result = 31 * result + mWidth;
+            result = 31 * result + mHeight;
+            result = 31 * result + mTint;
+            result = 31 * result + mFlags;
+            return result;
+        }
+    }
+}
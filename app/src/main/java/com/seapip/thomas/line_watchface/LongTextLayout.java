@@ -0,0 +1,182 @@
+package com.seapip.thomas.line_watchface;
+
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.text.TextPaint;
+import android.text.TextUtils;
+
+import com.seapip.thomas.line_watchface.core.FaceGeometry;
+
+/**
+ * Measured layout of a long text complication: the pill shaped bounds, where the image or icon
+ * goes and the (ellipsized) text and title positions. It's only measured again when the
+ * strings, the kind of image, the available space or the ambient state change.
+ */
+class LongTextLayout {
+    static final int IMAGE_NONE = FaceGeometry.LONG_TEXT_IMAGE_NONE;
+    static final int IMAGE_SMALL_IMAGE = FaceGeometry.LONG_TEXT_IMAGE_SMALL_IMAGE;
+    static final int IMAGE_ICON = FaceGeometry.LONG_TEXT_IMAGE_ICON;
+
+    private final RectF mBounds = new RectF();
+    private final Rect mImageBounds = new Rect();
+    private final Rect mTextBounds = new Rect();
+    private boolean mValid;
+
+    private String mText;
+    private String mTitle;
+    private int mImage;
+    private float mCenterX;
+    private float mCenterY;
+    private float mMaxWidth;
+    private float mHeight;
+    private int mIconSize;
+    private boolean mAmbient;
+    private boolean mBurnInProtection;
+    private float mWidth;
+    private boolean mEllipsize;
+
+    private boolean mTextValid;
+    private boolean mImageDrawn;
+    private String mDrawnText;
+    private String mDrawnTitle;
+    private float mTextX;
+    private float mTextY;
+    private float mTitleY;
+
+    /**
+     * Measures the bounds for the strings, when one of the inputs changed since the last call.
+     *
+     * @param image    {@link #IMAGE_NONE}, {@link #IMAGE_SMALL_IMAGE} or {@link #IMAGE_ICON}
+     * @param iconSize size of an {@link #IMAGE_ICON}
+     */
+    void measure(String text, String title, int image, float centerX, float centerY,
+                 float maxWidth, float height, int iconSize, boolean ambient,
+                 boolean burnInProtection, TextPaint textPaint, TextPaint titlePaint) {
+        if (mValid &&
+                TextUtils.equals(text, mText) &&
+                TextUtils.equals(title, mTitle) &&
+                image == mImage &&
+                centerX == mCenterX &&
+                centerY == mCenterY &&
+                maxWidth == mMaxWidth &&
+                height == mHeight &&
+                iconSize == mIconSize &&
+                ambient == mAmbient &&
+                burnInProtection == mBurnInProtection) {
+            return;
+        }
+        mValid = true;
+        mTextValid = false;
+        mText = text;
+        mTitle = title;
+        mImage = image;
+        mCenterX = centerX;
+        mCenterY = centerY;
+        mMaxWidth = maxWidth;
+        mHeight = height;
+        mIconSize = iconSize;
+        mAmbient = ambient;
+        mBurnInProtection = burnInProtection;
+
+        float textWidth = -1;
+        float titleWidth = -1;
+        if (text != null) {
+            textPaint.getTextBounds(text, 0, text.length(), mTextBounds);
+            textWidth = mTextBounds.width();
+        }
+        if (title != null) {
+            titlePaint.getTextBounds(title, 0, title.length(), mTextBounds);
+            titleWidth = mTextBounds.width();
+        }
+        float width = FaceGeometry.getLongTextWidth(textWidth, titleWidth, image, height, maxWidth);
+        mEllipsize = false;
+        if (width > maxWidth) {
+            width = maxWidth;
+            mEllipsize = true;
+        }
+        mWidth = width;
+
+        mBounds.set(centerX - width / 2,
+                centerY - height / 2,
+                centerX + width / 2,
+                centerY + height / 2);
+
+        if (image == IMAGE_SMALL_IMAGE) {
+            mImageBounds.set(Math.round(mBounds.left + 2),
+                    Math.round(mBounds.top + 2),
+                    Math.round(mBounds.left + height - 2),
+                    Math.round(mBounds.bottom - 2));
+        } else if (image == IMAGE_ICON) {
+            mImageBounds.set(Math.round(mBounds.left + height / 2 - iconSize / 2),
+                    Math.round(mBounds.top + height / 2 - iconSize / 2),
+                    Math.round(mBounds.left + height / 2 + iconSize / 2),
+                    Math.round(mBounds.top + height / 2 + iconSize / 2));
+        } else {
+            mImageBounds.setEmpty();
+        }
+    }
+
+    /**
+     * Positions and ellipsizes the strings, the text moves aside when the image is drawn.
+     */
+    void layoutText(boolean imageDrawn, TextPaint textPaint, TextPaint titlePaint) {
+        if (mTextValid && imageDrawn == mImageDrawn) {
+            return;
+        }
+        mTextValid = true;
+        mImageDrawn = imageDrawn;
+
+        float height = mHeight;
+        mTextY = mCenterY - (textPaint.descent() + textPaint.ascent() / 2);
+        mTextX = mBounds.left + height / 4;
+        float textWidth = mWidth - height / 4;
+        if (imageDrawn && mImage == IMAGE_SMALL_IMAGE) {
+            mTextX = mBounds.left + height + 8;
+            textWidth = mWidth - (mTextX - mBounds.left) - height / 4;
+        } else if (imageDrawn && mImage == IMAGE_ICON) {
+            mTextX = mBounds.left + height;
+            textWidth = mWidth - (mTextX - mBounds.left) - height / 4;
+        }
+
+        mDrawnTitle = mTitle;
+        if (mTitle != null) {
+            if (mEllipsize) {
+                mDrawnTitle = TextUtils.ellipsize(mTitle, titlePaint, textWidth, TextUtils.TruncateAt.END).toString();
+            }
+            mTitleY = mCenterY - titlePaint.descent() - titlePaint.ascent() + 4;
+            mTextY = mCenterY - 4;
+        }
+        mDrawnText = mText;
+        if (mText != null && mEllipsize) {
+            mDrawnText = TextUtils.ellipsize(mText, textPaint, textWidth, TextUtils.TruncateAt.END).toString();
+        }
+    }
+
+    RectF getBounds() {
+        return mBounds;
+    }
+
+    Rect getImageBounds() {
+        return mImageBounds;
+    }
+
+    String getText() {
+        return mDrawnText;
+    }
+
+    String getTitle() {
+        return mDrawnTitle;
+    }
+
+    float getTextX() {
+        return mTextX;
+    }
+
+    float getTextY() {
+        return mTextY;
+    }
+
+    float getTitleY() {
+        return mTitleY;
+    }
+}
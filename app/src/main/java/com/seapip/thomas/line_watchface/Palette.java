@@ -0,0 +1,228 @@
+package com.seapip.thomas.line_watchface;
+
+import android.graphics.Color;
+import android.graphics.LinearGradient;
+import android.graphics.Paint;
+import android.graphics.Shader;
+import android.graphics.Typeface;
+import android.text.TextPaint;
+
+/**
+ * The paints the face is drawn with in one ambient state, fully configured for the settings and
+ * surface size when the palette is built. Nothing changes them while drawing, so text drawn
+ * with different alignments has a paint per alignment and the {@link ComplicationWorker} can
+ * draw with them on its own thread. Low-bit ambient palettes are black and white without
+ * anti-aliasing, anti-aliased edges turn into noise on those panels.
+ */
+final class Palette {
+    private final Paint mBackgroundOverlayPaint;
+    private final Paint mHourTextPaint;
+    private final Paint mHourTextRightPaint;
+    private final Paint mMinuteTextPaint;
+    private final Paint mMinutePaint;
+    private final Paint mSecondTextPaint;
+    private final Paint mSecondPaint;
+    private final Paint mHourTickPaint;
+    private final Paint mTickPaint;
+    private final Paint mComplicationArcValuePaint;
+    private final Paint mComplicationArcPaint;
+    private final Paint mComplicationCirclePaint;
+    private final TextPaint mComplicationPrimaryLongTextPaint;
+    private final Paint mComplicationPrimaryTextPaint;
+    private final TextPaint mComplicationLongTextPaint;
+    private final Paint mComplicationTextPaint;
+    private final Paint mComplicationTextLeftPaint;
+    private final Paint mComplicationTextRightPaint;
+    private final Paint mNotificationBackgroundPaint;
+    private final Paint mNotificationCirclePaint;
+    private final Paint mNotificationTextPaint;
+
+    Palette(WatchFaceConfig config, int width, int height, boolean ambient, boolean lowBitAmbient,
+            boolean burnInProtection, Typeface font, Typeface fontLight, Typeface fontBold) {
+        boolean lowBit = ambient && lowBitAmbient;
+        int backgroundColor = config.getBackgroundColor();
+        int primaryColor = config.getPrimaryColor();
+        int secondaryColor = config.getSecondaryColor();
+        int tertiaryColor = config.getTertiaryColor();
+        int quaternaryColor = config.getQuaternaryColor();
+        int timeColor = ambient ? Color.WHITE : primaryColor;
+        if (lowBit) {
+            secondaryColor = Color.WHITE;
+            tertiaryColor = Color.WHITE;
+            quaternaryColor = Color.WHITE;
+        }
+
+        mBackgroundOverlayPaint = new Paint();
+        mBackgroundOverlayPaint.setColor(Color.argb(128, Color.red(backgroundColor), Color.green(backgroundColor), Color.blue(backgroundColor)));
+
+        mHourTextPaint = createTextPaint(timeColor, ambient && burnInProtection ? fontLight : font,
+                width / 6, Paint.Align.CENTER, lowBit);
+        mHourTextRightPaint = new Paint(mHourTextPaint);
+        mHourTextRightPaint.setTextAlign(Paint.Align.RIGHT);
+        mMinuteTextPaint = createTextPaint(secondaryColor, fontBold, width / 15, Paint.Align.LEFT, lowBit);
+        mSecondTextPaint = createTextPaint(tertiaryColor, fontBold, width / 15, Paint.Align.LEFT, lowBit);
+
+        mMinutePaint = createLinePaint(timeColor, 4f, Paint.Cap.SQUARE, lowBit);
+        mSecondPaint = createLinePaint(secondaryColor, 6f, Paint.Cap.BUTT, lowBit);
+        mSecondPaint.setStyle(Paint.Style.STROKE);
+        mHourTickPaint = createLinePaint(secondaryColor, 4f, Paint.Cap.SQUARE, lowBit);
+        mTickPaint = createLinePaint(tertiaryColor, 4f, Paint.Cap.SQUARE, lowBit);
+
+        mComplicationArcValuePaint = createLinePaint(secondaryColor, 4f, Paint.Cap.SQUARE, lowBit);
+        mComplicationArcValuePaint.setStyle(Paint.Style.STROKE);
+        mComplicationArcPaint = createLinePaint(tertiaryColor, 4f, Paint.Cap.SQUARE, lowBit);
+        mComplicationArcPaint.setStyle(Paint.Style.STROKE);
+        mComplicationCirclePaint = createLinePaint(quaternaryColor, 3f, Paint.Cap.SQUARE, lowBit);
+        mComplicationCirclePaint.setStyle(Paint.Style.STROKE);
+
+        mComplicationPrimaryLongTextPaint = new TextPaint(
+                createTextPaint(secondaryColor, fontBold, width / 23, Paint.Align.LEFT, lowBit));
+        mComplicationPrimaryTextPaint = createTextPaint(secondaryColor, fontBold, width / 18, Paint.Align.CENTER, lowBit);
+        mComplicationLongTextPaint = new TextPaint(
+                createTextPaint(tertiaryColor, fontBold, width / 25, Paint.Align.LEFT, lowBit));
+        mComplicationTextPaint = createTextPaint(tertiaryColor, fontBold, width / 20, Paint.Align.CENTER, lowBit);
+        mComplicationTextLeftPaint = new Paint(mComplicationTextPaint);
+        mComplicationTextLeftPaint.setTextAlign(Paint.Align.LEFT);
+        mComplicationTextRightPaint = new Paint(mComplicationTextPaint);
+        mComplicationTextRightPaint.setTextAlign(Paint.Align.RIGHT);
+
+        /* The notification gradient is left out in low-bit ambient mode. */
+        mNotificationBackgroundPaint = new Paint();
+        int gradientColor = Color.argb(128, Color.red(backgroundColor), Color.green(backgroundColor), Color.blue(backgroundColor));
+        mNotificationBackgroundPaint.setShader(new LinearGradient(0, height - height / 4, 0, height,
+                Color.TRANSPARENT, gradientColor, Shader.TileMode.CLAMP));
+
+        mNotificationCirclePaint = new Paint();
+        mNotificationCirclePaint.setStyle(ambient && burnInProtection ? Paint.Style.STROKE : Paint.Style.FILL_AND_STROKE);
+        mNotificationCirclePaint.setColor(Color.WHITE);
+        mNotificationCirclePaint.setAntiAlias(!lowBit);
+        mNotificationCirclePaint.setStrokeWidth(2);
+
+        int notificationTextColor = backgroundColor;
+        if (lowBit) {
+            notificationTextColor = Color.BLACK;
+        } else if (ambient && burnInProtection) {
+            notificationTextColor = Color.WHITE;
+        }
+        mNotificationTextPaint = createTextPaint(notificationTextColor, fontBold, width / 25, Paint.Align.CENTER, lowBit);
+    }
+
+    private static Paint createTextPaint(int color, Typeface typeface, float textSize,
+                                         Paint.Align align, boolean lowBit) {
+        Paint paint = new Paint();
+        paint.setColor(color);
+        paint.setAntiAlias(!lowBit);
+        paint.setTypeface(typeface);
+        paint.setTextSize(textSize);
+        paint.setTextAlign(align);
+        return paint;
+    }
+
+    private static Paint createLinePaint(int color, float strokeWidth, Paint.Cap cap, boolean lowBit) {
+        Paint paint = new Paint();
+        paint.setColor(color);
+        paint.setStrokeWidth(strokeWidth);
+        paint.setAntiAlias(!lowBit);
+        paint.setStrokeCap(cap);
+        return paint;
+    }
+
+    Paint getBackgroundOverlayPaint() {
+        return mBackgroundOverlayPaint;
+    }
+
+    /**
+     * Returns the hour text paint, centered.
+     */
+    Paint getHourTextPaint() {
+        return mHourTextPaint;
+    }
+
+    Paint getHourTextRightPaint() {
+        return mHourTextRightPaint;
+    }
+
+    Paint getMinuteTextPaint() {
+        return mMinuteTextPaint;
+    }
+
+    /**
+     * Returns the paint of the minute hand.
+     */
+    Paint getMinutePaint() {
+        return mMinutePaint;
+    }
+
+    Paint getSecondTextPaint() {
+        return mSecondTextPaint;
+    }
+
+    /**
+     * Returns the paint of the seconds ring.
+     */
+    Paint getSecondPaint() {
+        return mSecondPaint;
+    }
+
+    Paint getHourTickPaint() {
+        return mHourTickPaint;
+    }
+
+    Paint getTickPaint() {
+        return mTickPaint;
+    }
+
+    Paint getComplicationArcValuePaint() {
+        return mComplicationArcValuePaint;
+    }
+
+    Paint getComplicationArcPaint() {
+        return mComplicationArcPaint;
+    }
+
+    Paint getComplicationCirclePaint() {
+        return mComplicationCirclePaint;
+    }
+
+    TextPaint getComplicationPrimaryLongTextPaint() {
+        return mComplicationPrimaryLongTextPaint;
+    }
+
+    /**
+     * Returns the primary complication text paint, centered.
+     */
+    Paint getComplicationPrimaryTextPaint() {
+        return mComplicationPrimaryTextPaint;
+    }
+
+    TextPaint getComplicationLongTextPaint() {
+        return mComplicationLongTextPaint;
+    }
+
+    /**
+     * Returns the secondary complication text paint, centered.
+     */
+    Paint getComplicationTextPaint() {
+        return mComplicationTextPaint;
+    }
+
+    Paint getComplicationTextLeftPaint() {
+        return mComplicationTextLeftPaint;
+    }
+
+    Paint getComplicationTextRightPaint() {
+        return mComplicationTextRightPaint;
+    }
+
+    Paint getNotificationBackgroundPaint() {
+        return mNotificationBackgroundPaint;
+    }
+
+    Paint getNotificationCirclePaint() {
+        return mNotificationCirclePaint;
+    }
+
+    Paint getNotificationTextPaint() {
+        return mNotificationTextPaint;
+    }
+}
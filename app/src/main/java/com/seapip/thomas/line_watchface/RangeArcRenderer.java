@@ -0,0 +1,161 @@
+package com.seapip.thomas.line_watchface;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffXfermode;
+
+import com.seapip.thomas.line_watchface.core.FaceGeometry;
+
+/**
+ * Draws the arc of a ranged value complication without allocating per frame. The track (arc and
+ * steps with the value cut out of it) is kept in an ALPHA_8 mask that is tinted by the track
+ * paint, it's only redrawn when the quantized value or the geometry changes. The formatted
+ * labels are kept until the values change.
+ */
+class RangeArcRenderer {
+    /* The value sweep is quantized to half a degree. */
+    private static final int SWEEP_QUANTA = 540;
+    private static final PorterDuffXfermode CLEAR_MODE = new PorterDuffXfermode(PorterDuff.Mode.CLEAR);
+
+    private final Path mTrackPath = new Path();
+    private final Path mValuePath = new Path();
+    private final Paint mMaskPaint = new Paint();
+    private final float[] mLine = new float[4];
+    private Bitmap mMask;
+    private Canvas mMaskCanvas;
+    private boolean mMaskValid;
+    private float mRadius;
+    private float mStepLength;
+    private float mNeedleLength;
+    private int mQuantizedValue;
+    private boolean mAntiAlias;
+
+    private float mMin = Float.NaN;
+    private float mMax = Float.NaN;
+    private float mValue = Float.NaN;
+    private String mMinText;
+    private String mMaxText;
+    private String mValueText;
+
+    static String formatNumber(float val) {
+        if (val > 100000) {
+            return String.valueOf(Math.round(val / 100000) + "m");
+        } else if (val > 1000) {
+            return String.valueOf(Math.round(val / 1000) + "k");
+        } else {
+            return String.valueOf(Math.round(val));
+        }
+    }
+
+    /**
+     * Updates the values, the labels are only formatted again when a value changed.
+     */
+    void setValues(float min, float max, float value) {
+        if (min != mMin) {
+            mMin = min;
+            mMinText = formatNumber(min);
+        }
+        if (max != mMax) {
+            mMax = max;
+            mMaxText = formatNumber(max);
+        }
+        if (value != mValue) {
+            mValue = value;
+            mValueText = formatNumber(value);
+        }
+    }
+
+    String getMinText() {
+        return mMinText;
+    }
+
+    String getMaxText() {
+        return mMaxText;
+    }
+
+    String getValueText() {
+        return mValueText;
+    }
+
+    /**
+     * Draws the arc for the current values centered at the given position.
+     *
+     * @param stepLength   length of the step marks on the track
+     * @param needleLength length of the line that ends the value arc
+     */
+    void draw(Canvas canvas, float centerX, float centerY, float radius, float stepLength,
+              float needleLength, Paint trackPaint, Paint valuePaint) {
+        float arcValue = mValue > mMax ? mMax : mValue;
+        float progress = mMax > mMin ? (arcValue - mMin) / (mMax - mMin) : 0;
+        progress = Math.max(0, Math.min(1, progress));
+        int quantizedValue = Math.round(progress * SWEEP_QUANTA);
+
+        int size = (int) radius * 2 + 4;
+        if (mMask == null || mMask.getWidth() != size) {
+            if (mMask != null) {
+                mMask.recycle();
+            }
+            mMask = Bitmap.createBitmap(size, size, Bitmap.Config.ALPHA_8);
+            mMaskCanvas = new Canvas(mMask);
+            mMaskValid = false;
+        }
+        /* Low-bit ambient draws the same dial without anti-aliasing. */
+        boolean antiAlias = trackPaint.isAntiAlias();
+        if (!mMaskValid || quantizedValue != mQuantizedValue || radius != mRadius ||
+                stepLength != mStepLength || needleLength != mNeedleLength ||
+                antiAlias != mAntiAlias) {
+            mQuantizedValue = quantizedValue;
+            mAntiAlias = antiAlias;
+            mRadius = radius;
+            mStepLength = stepLength;
+            mNeedleLength = needleLength;
+            buildMask((float) quantizedValue / SWEEP_QUANTA, trackPaint, valuePaint);
+            mMaskValid = true;
+        }
+
+        float left = centerX - radius - 2;
+        float top = centerY - radius - 2;
+        /* An ALPHA_8 bitmap is drawn in the color of the paint. */
+        canvas.drawBitmap(mMask, left, top, trackPaint);
+        canvas.save();
+        canvas.translate(left, top);
+        canvas.drawPath(mValuePath, valuePaint);
+        canvas.restore();
+    }
+
+    private void buildMask(float progress, Paint trackPaint, Paint valuePaint) {
+        float radius = mRadius;
+        /* The mask has a 2 pixel margin around the arc. */
+        float center = radius + 2;
+        float sweep = FaceGeometry.RANGE_SWEEP;
+
+        mTrackPath.rewind();
+        mTrackPath.addArc(2, 2, radius * 2 + 2, radius * 2 + 2,
+                -90 + progress * sweep,
+                sweep - progress * sweep);
+        for (int index = 1; index < FaceGeometry.RANGE_STEPS; index++) {
+            FaceGeometry.getRangeStep(center, center, radius, mStepLength, index, mLine, 0);
+            mTrackPath.moveTo(mLine[0], mLine[1]);
+            mTrackPath.lineTo(mLine[2], mLine[3]);
+        }
+
+        FaceGeometry.getRangeNeedle(center, center, radius, mNeedleLength, progress, mLine, 0);
+        mValuePath.rewind();
+        mValuePath.addArc(2, 2, radius * 2 + 2, radius * 2 + 2,
+                -90, progress * sweep + 0.0001f);
+        mValuePath.lineTo(mLine[2], mLine[3]);
+
+        mMask.eraseColor(Color.TRANSPARENT);
+        mMaskPaint.set(trackPaint);
+        mMaskPaint.setColor(Color.BLACK);
+        mMaskCanvas.drawPath(mTrackPath, mMaskPaint);
+        mMaskPaint.set(valuePaint);
+        mMaskPaint.setXfermode(CLEAR_MODE);
+        mMaskCanvas.drawPath(mValuePath, mMaskPaint);
+        mMaskPaint.setXfermode(null);
+    }
+}
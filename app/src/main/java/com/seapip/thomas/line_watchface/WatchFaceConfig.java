@@ -0,0 +1,218 @@
+package com.seapip.thomas.line_watchface;
+
+import android.content.SharedPreferences;
+import android.graphics.Color;
+
+import java.util.Set;
+
+/**
+ * Immutable snapshot of the settings, with the colors derived from them. A new snapshot is
+ * loaded when a setting changes, {@link #diff} tells which parts of the face depend on what
+ * actually changed.
+ */
+final class WatchFaceConfig {
+    /* Parts of the face that depend on a changed setting, returned by diff. */
+    static final int CHANGED_COLORS = 1;
+    static final int CHANGED_LAYOUT = 1 << 1;
+    static final int CHANGED_BACKGROUND_COLOR = 1 << 2;
+    static final int CHANGED_BACKGROUND_EFFECTS = 1 << 3;
+    static final int CHANGED_AMBIENT_COLOR = 1 << 4;
+    static final int CHANGED_NOTIFICATION_INDICATOR = 1 << 5;
+    static final int CHANGED_TIME_FORMAT = 1 << 6;
+    static final int CHANGED_FRAME_PACING = 1 << 7;
+    static final int CHANGED_DEBUG = 1 << 8;
+
+    private final int mPrimaryColor;
+    private final int mSecondaryColor;
+    private final int mTertiaryColor;
+    private final int mQuaternaryColor;
+    private final boolean mComplicationBorder;
+    private final boolean mStyleDigitalog;
+    private final boolean mStyleDigital;
+    private final boolean mStyleAnalog;
+    private final int mBackgroundColor;
+    private final boolean mBackgroundEffectDarken;
+    private final boolean mBackgroundEffectBlur;
+    private final boolean mBackgroundEffectGrayscale;
+    private final boolean mAmbientColor;
+    private final boolean mNotificationIndicatorUnread;
+    private final boolean mNotificationIndicatorAll;
+    private final boolean mTimeFormat24;
+    private final boolean mTimeFormat12;
+    private final boolean mVsyncPacing;
+    private final int mFrameRateCap;
+    private final boolean mDebugOverlay;
+    private final boolean mFrameStats;
+
+    WatchFaceConfig(SharedPreferences prefs) {
+        mPrimaryColor = prefs.getInt("settings_color_value", Color.parseColor("#18FFFF"));
+        int secondaryColor = prefs.getInt("settings_accent_color_value", Color.parseColor("#FFFFFF"));
+        float secondaryOpacity = Integer.parseInt(prefs.getString("settings_accent_color_opacity", "60")) / 100f;
+        mSecondaryColor = Color.argb(Math.round(secondaryOpacity * 255), Color.red(secondaryColor), Color.green(secondaryColor), Color.blue(secondaryColor));
+        mTertiaryColor = Color.argb(Math.round(secondaryOpacity * 152), Color.red(secondaryColor), Color.green(secondaryColor), Color.blue(secondaryColor));
+        mQuaternaryColor = Color.argb(Math.round(secondaryOpacity * 48), Color.red(secondaryColor), Color.green(secondaryColor), Color.blue(secondaryColor));
+        mComplicationBorder = prefs.getBoolean("settings_complication_border", true);
+        String style = prefs.getString("settings_style", "0");
+        mStyleDigitalog = style.equals("0");
+        mStyleDigital = style.equals("1");
+        mStyleAnalog = style.equals("2");
+        mBackgroundColor = prefs.getInt("settings_background_color_value", Color.BLACK);
+        Set<String> backgroundEffects = prefs.getStringSet("settings_background_effects", null);
+        mBackgroundEffectDarken = backgroundEffects != null && backgroundEffects.contains("0");
+        mBackgroundEffectBlur = backgroundEffects != null && backgroundEffects.contains("1");
+        mBackgroundEffectGrayscale = backgroundEffects != null && backgroundEffects.contains("2");
+        mAmbientColor = prefs.getBoolean("settings_ambient", false);
+        String notificationIndicator = prefs.getString("settings_notification_indicator", null);
+        mNotificationIndicatorUnread = notificationIndicator != null && notificationIndicator.equals("1");
+        mNotificationIndicatorAll = notificationIndicator != null && notificationIndicator.equals("2");
+        String timeFormat = prefs.getString("settings_time_format", null);
+        mTimeFormat24 = timeFormat != null && timeFormat.equals("1");
+        mTimeFormat12 = timeFormat != null && timeFormat.equals("2");
+        mVsyncPacing = prefs.getBoolean("settings_vsync_pacing", false);
+        mFrameRateCap = Integer.parseInt(prefs.getString("settings_frame_rate_cap", "0"));
+        mDebugOverlay = prefs.getBoolean("settings_debug_overlay", false);
+        mFrameStats = prefs.getBoolean("settings_frame_stats", false);
+    }
+
+    /**
+     * Returns the CHANGED flags of the parts of the face that differ between this and the
+     * other snapshot, 0 when nothing visible or behavioral changed.
+     */
+    int diff(WatchFaceConfig other) {
+        int changes = 0;
+        if (mPrimaryColor != other.mPrimaryColor ||
+                mSecondaryColor != other.mSecondaryColor) {
+            changes |= CHANGED_COLORS;
+        }
+        if (mComplicationBorder != other.mComplicationBorder ||
+                mStyleDigitalog != other.mStyleDigitalog ||
+                mStyleDigital != other.mStyleDigital ||
+                mStyleAnalog != other.mStyleAnalog) {
+            changes |= CHANGED_LAYOUT;
+        }
+        if (mBackgroundColor != other.mBackgroundColor) {
+            changes |= CHANGED_BACKGROUND_COLOR;
+        }
+        if (mBackgroundEffectDarken != other.mBackgroundEffectDarken ||
+                mBackgroundEffectBlur != other.mBackgroundEffectBlur ||
+                mBackgroundEffectGrayscale != other.mBackgroundEffectGrayscale) {
+            changes |= CHANGED_BACKGROUND_EFFECTS;
+        }
+        if (mAmbientColor != other.mAmbientColor) {
+            changes |= CHANGED_AMBIENT_COLOR;
+        }
+        if (mNotificationIndicatorUnread != other.mNotificationIndicatorUnread ||
+                mNotificationIndicatorAll != other.mNotificationIndicatorAll) {
+            changes |= CHANGED_NOTIFICATION_INDICATOR;
+        }
+        if (mTimeFormat24 != other.mTimeFormat24 ||
+                mTimeFormat12 != other.mTimeFormat12) {
+            changes |= CHANGED_TIME_FORMAT;
+        }
+        if (mVsyncPacing != other.mVsyncPacing ||
+                mFrameRateCap != other.mFrameRateCap) {
+            changes |= CHANGED_FRAME_PACING;
+        }
+        if (mDebugOverlay != other.mDebugOverlay ||
+                mFrameStats != other.mFrameStats) {
+            changes |= CHANGED_DEBUG;
+        }
+        return changes;
+    }
+
+    int getPrimaryColor() {
+        return mPrimaryColor;
+    }
+
+    /**
+     * Returns the accent color at the configured opacity.
+     */
+    int getSecondaryColor() {
+        return mSecondaryColor;
+    }
+
+    /**
+     * Returns the accent color at 60% of the secondary opacity.
+     */
+    int getTertiaryColor() {
+        return mTertiaryColor;
+    }
+
+    /**
+     * Returns the accent color at 19% of the secondary opacity.
+     */
+    int getQuaternaryColor() {
+        return mQuaternaryColor;
+    }
+
+    boolean hasComplicationBorder() {
+        return mComplicationBorder;
+    }
+
+    boolean isStyleDigitalog() {
+        return mStyleDigitalog;
+    }
+
+    boolean isStyleDigital() {
+        return mStyleDigital;
+    }
+
+    boolean isStyleAnalog() {
+        return mStyleAnalog;
+    }
+
+    int getBackgroundColor() {
+        return mBackgroundColor;
+    }
+
+    boolean isBackgroundEffectDarken() {
+        return mBackgroundEffectDarken;
+    }
+
+    boolean isBackgroundEffectBlur() {
+        return mBackgroundEffectBlur;
+    }
+
+    boolean isBackgroundEffectGrayscale() {
+        return mBackgroundEffectGrayscale;
+    }
+
+    boolean isAmbientColor() {
+        return mAmbientColor;
+    }
+
+    boolean isNotificationIndicatorUnread() {
+        return mNotificationIndicatorUnread;
+    }
+
+    boolean isNotificationIndicatorAll() {
+        return mNotificationIndicatorAll;
+    }
+
+    boolean isTimeFormat24() {
+        return mTimeFormat24;
+    }
+
+    boolean isTimeFormat12() {
+        return mTimeFormat12;
+    }
+
+    boolean isVsyncPacing() {
+        return mVsyncPacing;
+    }
+
+    int getFrameRateCap() {
+        return mFrameRateCap;
+    }
+
+    boolean isDebugOverlay() {
+        return mDebugOverlay;
+    }
+
+    /**
+     * Whether frame stats are collected, the debug overlay shows them so it enables them too.
+     */
+    boolean isFrameStatsEnabled() {
+        return mFrameStats || mDebugOverlay;
+    }
+}
@@ -16,6 +16,7 @@
 
 package com.seapip.thomas.line_watchface;
 
+import android.app.AlarmManager;
 import android.app.PendingIntent;
 import android.content.BroadcastReceiver;
 import android.content.ComponentName;
@@ -23,50 +24,50 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
 import android.content.SharedPreferences;
+import android.database.ContentObserver;
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
-import android.graphics.ColorMatrix;
-import android.graphics.ColorMatrixColorFilter;
-import android.graphics.LinearGradient;
 import android.graphics.Paint;
-import android.graphics.Path;
-import android.graphics.PathMeasure;
-import android.graphics.PorterDuff;
-import android.graphics.PorterDuffXfermode;
 import android.graphics.Rect;
-import android.graphics.RectF;
-import android.graphics.Shader;
 import android.graphics.Typeface;
 import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
 import android.graphics.drawable.Icon;
 import android.os.Bundle;
 import android.os.Handler;
+import android.os.BatteryManager;
+import android.os.Looper;
 import android.os.Message;
+import android.os.PowerManager;
 import android.preference.PreferenceManager;
-import android.renderscript.Allocation;
-import android.renderscript.Element;
-import android.renderscript.RenderScript;
-import android.renderscript.ScriptIntrinsicBlur;
+import android.provider.Settings;
 import android.support.wearable.complications.ComplicationData;
 import android.support.wearable.complications.ComplicationHelperActivity;
-import android.support.wearable.complications.ComplicationText;
 import android.support.wearable.watchface.CanvasWatchFaceService;
 import android.support.wearable.watchface.WatchFaceStyle;
-import android.text.TextPaint;
 import android.text.TextUtils;
 import android.text.format.DateFormat;
+import android.text.format.DateUtils;
 import android.util.Log;
 import android.util.SparseArray;
+import android.view.Choreographer;
 import android.view.Gravity;
 import android.view.SurfaceHolder;
 import android.view.WindowInsets;
+import android.view.WindowManager;
 
+import com.seapip.thomas.line_watchface.core.FaceGeometry;
+import com.seapip.thomas.line_watchface.core.FaceRenderer;
+import com.seapip.thomas.line_watchface.core.WallClock;
+
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.lang.ref.WeakReference;
-import java.util.Calendar;
-import java.util.Set;
 import java.util.TimeZone;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 public class WatchFaceService extends CanvasWatchFaceService {
 
@@ -78,10 +79,10 @@ public class WatchFaceService extends CanvasWatchFaceService {
             {ComplicationData.TYPE_LONG_TEXT, ComplicationData.TYPE_SHORT_TEXT, ComplicationData.TYPE_SMALL_IMAGE, ComplicationData.TYPE_ICON},
             {ComplicationData.TYPE_LARGE_IMAGE}
     };
-    private static final int TOP_DIAL_COMPLICATION = 0;
-    private static final int LEFT_DIAL_COMPLICATION = 1;
-    private static final int RIGHT_DIAL_COMPLICATION = 2;
-    private static final int BOTTOM_DIAL_COMPLICATION = 3;
+    private static final int TOP_DIAL_COMPLICATION = FaceGeometry.DIAL_TOP;
+    private static final int LEFT_DIAL_COMPLICATION = FaceGeometry.DIAL_LEFT;
+    private static final int RIGHT_DIAL_COMPLICATION = FaceGeometry.DIAL_RIGHT;
+    private static final int BOTTOM_DIAL_COMPLICATION = FaceGeometry.DIAL_BOTTOM;
     private static final int BACKGROUND_COMPLICATION = 4;
     public static final int[] COMPLICATION_IDS = {
             TOP_DIAL_COMPLICATION,
@@ -90,22 +91,101 @@ public class WatchFaceService extends CanvasWatchFaceService {
             BOTTOM_DIAL_COMPLICATION,
             BACKGROUND_COMPLICATION
     };
+    private static final String TAG = "WatchFaceService";
+    /* Broadcast by an alarm when a complication text changes while in ambient mode. */
+    private static final String ACTION_COMPLICATION_TEXT_CHANGE =
+            "com.seapip.thomas.line_watchface.action.COMPLICATION_TEXT_CHANGE";
     /*
-     * Update rate in milliseconds for interactive mode. We update once a second to advance the
-     * second hand.
+     * Minimum time between frames in interactive mode. Frames are only scheduled when something
+     * visible changes, this caps how often that can be.
      */
     private static final long INTERACTIVE_UPDATE_RATE_MS = 32;
 
+    /*
+     * Rendering tiers for the seconds, from most to least expensive. The engine renders at the
+     * lower of the tier picked from the power state and the user's cap in the settings.
+     */
+    private static final int TIER_SMOOTH = 0;
+    private static final int TIER_10_FPS = 1;
+    private static final int TIER_TICKING = 2;
+    private static final int TIER_SECONDS_OFF = 3;
+    private static final long TIER_10_FPS_UPDATE_RATE_MS = 100;
+
+    /* Digit atlases for the time text, each with an interactive and an ambient variant. */
+    private static final int ATLAS_HOUR = 0;
+    private static final int ATLAS_MINUTE = 1;
+    private static final int ATLAS_SECOND = 2;
+
+    /* Tens and ones digits of 0 to 99, to format the time without allocating. */
+    private static final char[] DIGIT_TENS = new char[100];
+    private static final char[] DIGIT_ONES = new char[100];
+
+    static {
+        for (int i = 0; i < 100; i++) {
+            DIGIT_TENS[i] = (char) ('0' + i / 10);
+            DIGIT_ONES[i] = (char) ('0' + i % 10);
+        }
+    }
+
     /**
      * Handler message id for updating the time periodically in interactive mode.
      */
     private static final int MSG_UPDATE_TIME = 0;
+    /* How long a dump waits for the engine thread to read the frame stats. */
+    private static final long DUMP_TIMEOUT_MS = 5 * DateUtils.SECOND_IN_MILLIS;
 
     private SharedPreferences mPrefs;
+    private Engine mEngine;
 
     @Override
     public Engine onCreateEngine() {
-        return new Engine();
+        mEngine = new Engine();
+        return mEngine;
+    }
+
+    /**
+     * Prints the frame stats after the engine state, {@code adb shell dumpsys activity service
+     * com.seapip.thomas.line_watchface/.WatchFaceService [reset]}. The stats are read and reset
+     * on the engine thread, a dump from a binder thread waits for it.
+     */
+    @Override
+    protected void dump(FileDescriptor fd, PrintWriter writer, String[] args) {
+        super.dump(fd, writer, args);
+        final Engine engine = mEngine;
+        if (engine == null) {
+            return;
+        }
+        final boolean reset = args != null && args.length > 0 && "reset".equals(args[0]);
+        final StringWriter stats = new StringWriter();
+        final CountDownLatch done = new CountDownLatch(1);
+        Runnable dumpStats = new Runnable() {
+            @Override
+            public void run() {
+                PrintWriter statsWriter = new PrintWriter(stats);
+                engine.mFrameStats.dump("", statsWriter);
+                if (reset) {
+                    engine.mFrameStats.reset();
+                    statsWriter.println("Frame stats reset.");
+                }
+                statsWriter.flush();
+                done.countDown();
+            }
+        };
+        if (Looper.myLooper() == engine.mUpdateTimeHandler.getLooper()) {
+            dumpStats.run();
+        } else {
+            engine.mUpdateTimeHandler.post(dumpStats);
+            try {
+                if (!done.await(DUMP_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                    writer.println("Frame stats unavailable, the engine thread didn't respond.");
+                    return;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        writer.print(stats.toString());
     }
 
     private static class EngineHandler extends Handler {
@@ -131,63 +211,180 @@ public class WatchFaceService extends CanvasWatchFaceService {
     private class Engine extends CanvasWatchFaceService.Engine {
         /* Handler to update the time once a second in interactive mode. */
         private final Handler mUpdateTimeHandler = new EngineHandler(this);
-        private boolean mComplicationBorder;
-        private boolean mStyleDigitalog;
-        private boolean mStyleDigital;
-        private boolean mStyleAnalog;
-        private boolean mBackgroundEffectDarken;
-        private boolean mBackgroundEffectBlur;
-        private boolean mBackgroundEffectGrayscale;
-        private boolean mAmbientColor;
-        private boolean mNotificationIndicatorUnread;
-        private boolean mNotificationIndicatorAll;
-        private boolean mTimeFormat24;
-        private boolean mTimeFormat12;
-        private int mPrimaryColor;
-        private int mBackgroundColor;
-        private Calendar mCalendar;
+        /* System 12/24 hour setting, refreshed by mTimeFormatObserver and time change broadcasts. */
+        private boolean mIs24HourFormat;
+        private final char[] mHourChars = new char[2];
+        private final char[] mMinuteChars = new char[2];
+        private final char[] mSecondChars = new char[2];
+        private final char[] mNotificationCountChars = new char[10];
+        private final FrameStats mFrameStats = new FrameStats();
+        private Paint mDebugPaint;
+        private WallClock mWallClock;
+        /*
+         * Settings snapshot, replaced as a whole by mPreferenceChangeListener when a setting
+         * actually changed. Only what depends on the changed settings is invalidated.
+         */
+        private WatchFaceConfig mConfig;
+        private final SharedPreferences.OnSharedPreferenceChangeListener mPreferenceChangeListener =
+                new SharedPreferences.OnSharedPreferenceChangeListener() {
+                    @Override
+                    public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String key) {
+                        WatchFaceConfig config = new WatchFaceConfig(sharedPreferences);
+                        int changes = mConfig.diff(config);
+                        mConfig = config;
+                        if (changes != 0) {
+                            onConfigChanged(changes);
+                        }
+                    }
+                };
         private final BroadcastReceiver mTimeZoneReceiver = new BroadcastReceiver() {
             @Override
             public void onReceive(Context context, Intent intent) {
-                mCalendar.setTimeZone(TimeZone.getDefault());
+                mWallClock.setTimeZone(TimeZone.getDefault());
+                mIs24HourFormat = DateFormat.is24HourFormat(WatchFaceService.this);
+                invalidateMinuteLayer();
                 invalidate();
             }
         };
         private boolean mRegisteredTimeZoneReceiver = false;
+        private final ContentObserver mTimeFormatObserver = new ContentObserver(mUpdateTimeHandler) {
+            @Override
+            public void onChange(boolean selfChange) {
+                mIs24HourFormat = DateFormat.is24HourFormat(WatchFaceService.this);
+                invalidateMinuteLayer();
+                invalidate();
+            }
+        };
+        private final BroadcastReceiver mTextChangeReceiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                mComplicationWorker.refresh();
+            }
+        };
+        private AlarmManager mAlarmManager;
+        private PendingIntent mTextChangeIntent;
+        private final BroadcastReceiver mPowerReceiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                updatePowerState(intent);
+            }
+        };
+        private int mBatteryLevel = 100;
+        private boolean mCharging;
+        private boolean mPowerSaveMode;
+        private int mRenderTier = TIER_SMOOTH;
         private float mCenterX;
         private float mCenterY;
-        private int mSecondaryColor;
-        private int mTertiaryColor;
-        private int mQuaternaryColor;
-        private Paint mBackgroundOverlayPaint;
-        private Paint mHourTextPaint;
-        private Paint mMinuteTextPaint;
-        private Paint mMinutePaint;
-        private Paint mSecondTextPaint;
-        private Paint mSecondPaint;
-        private Paint mHourTickPaint;
-        private Paint mTickPaint;
-        private Paint mComplicationArcValuePaint;
-        private Paint mComplicationArcPaint;
-        private Paint mComplicationCirclePaint;
-        private TextPaint mComplicationPrimaryLongTextPaint;
-        private Paint mComplicationPrimaryTextPaint;
-        private TextPaint mComplicationLongTextPaint;
-        private Paint mComplicationTextPaint;
-        private Paint mNotificationBackgroundPaint;
-        private Paint mNotificationCirclePaint;
-        private Paint mNotificationTextPaint;
+        private int mSurfaceWidth;
+        private int mSurfaceHeight;
+        /*
+         * Paints for the interactive and ambient state, built when the settings, surface size or
+         * device properties change. Ambient transitions only switch mPalette.
+         */
+        private Palette mInteractivePalette;
+        private Palette mAmbientPalette;
+        private Palette mPalette;
         private Typeface mFontLight;
         private Typeface mFontBold;
         private Typeface mFont;
         private SparseArray<ComplicationData> mActiveComplicationDataSparseArray;
         private boolean mAmbient;
         private boolean mLowBitAmbient;
+        /*
+         * Low-bit ambient rendering: everything but the time is drawn once per ambient session
+         * into the static layer, in black and white without anti-aliasing or images.
+         */
+        private boolean mLowBitAmbientRendering;
         private boolean mBurnInProtection;
         private boolean mIsRound;
         private int mUnreadNotificationCount;
         private int mNotificationCount;
-        private RectF[] mComplicationTapBoxes = new RectF[COMPLICATION_IDS.length];
+        /*
+         * Dials are prepared by the worker for the interactive and the ambient style and drawn
+         * from its latest snapshots. After the styles are rebuilt the previous snapshots are
+         * drawn until the worker replaced them.
+         */
+        private ComplicationWorker mComplicationWorker;
+        private DigitAtlas[] mDigitAtlases = new DigitAtlas[6];
+        private float mSecondsPathLength;
+        /* Ticks, minute hand and seconds ring, drawn through the canvas surface of the layer drawn to. */
+        private final FaceRenderer<Paint> mFaceRenderer = new FaceRenderer<>();
+        private final CanvasSurface mCanvasSurface = new CanvasSurface();
+        private final float[] mDialCenter = new float[2];
+        /* Frames drawn by the update timer and frames skipped compared to a fixed update rate. */
+        private long mScheduledFrames;
+        private long mSkippedFrames;
+        /*
+         * Vsync pacing: frames are started from Choreographer callbacks and the seconds are
+         * interpolated from the frame time on the monotonic clock, re-anchored to the wall clock
+         * once a second.
+         */
+        private Choreographer mChoreographer;
+        private long mFrameIntervalNanos;
+        private long mLastFrameTimeNanos;
+        /* How long after the last frame callback the next one was posted for. */
+        private long mFrameCallbackDelayNanos;
+        private long mNextFrameTime;
+        private long mPacedTimeMillis;
+        private long mWallAnchorMillis;
+        private long mMonotonicAnchorNanos;
+        private long mLateFrames;
+        private long mDroppedFrames;
+        private final Choreographer.FrameCallback mFrameCallback = new Choreographer.FrameCallback() {
+            @Override
+            public void doFrame(long frameTimeNanos) {
+                handleFrame(frameTimeNanos);
+            }
+        };
+        /*
+         * Offscreen layers, each redrawn at its own rate. The static layer holds everything that
+         * only changes with settings, surface or ambient state (background, ticks, dial borders).
+         * The minute layer is a copy of the static layer with the hour text, minute hand,
+         * complications and notification indicator on top. Only the seconds are drawn per frame.
+         */
+        private Bitmap mStaticLayer;
+        private Canvas mStaticLayerCanvas;
+        private boolean mStaticLayerValid;
+        private Bitmap mMinuteLayer;
+        private Canvas mMinuteLayerCanvas;
+        private boolean mMinuteLayerValid;
+        private long mMinuteLayerMinute;
+        /*
+         * Ambient frame of the next minute, rendered after the current minute is drawn so the
+         * time tick only swaps it in and blits it. Whatever invalidates the minute layer also
+         * discards it, it is then rendered again after the next frame.
+         */
+        private Bitmap mNextMinuteLayer;
+        private Canvas mNextMinuteLayerCanvas;
+        private boolean mNextMinuteLayerValid;
+        private long mNextMinuteLayerMinute;
+        /* What the dials in the low-bit ambient layer were prepared from and show. */
+        private final ComplicationStyle[] mLowBitAmbientStyles = new ComplicationStyle[COMPLICATION_IDS.length];
+        private final ComplicationData[] mLowBitAmbientData = new ComplicationData[COMPLICATION_IDS.length];
+        private final String[] mLowBitAmbientTexts = new String[COMPLICATION_IDS.length];
+        private final String[] mLowBitAmbientTitles = new String[COMPLICATION_IDS.length];
+        private final Runnable mPrepareNextMinuteLayer = new Runnable() {
+            @Override
+            public void run() {
+                prepareNextMinuteLayer();
+            }
+        };
+        /*
+         * Surface sized background image with all effects applied, together with the inputs it
+         * was requested with so it is only redone when one of them changes. While a blur is in
+         * flight the previous bitmap keeps being drawn.
+         */
+        private BlurEngine mBlurEngine;
+        private int mBackgroundRequest;
+        private Bitmap mBackgroundBitmap;
+        private Icon mBackgroundBitmapIcon;
+        private boolean mBackgroundBitmapDarken;
+        private boolean mBackgroundBitmapBlur;
+        private boolean mBackgroundBitmapGrayscale;
+        private boolean mBackgroundBitmapAmbient;
+        private int mBackgroundBitmapOverlayColor;
+        private int mBackgroundBitmapWidth;
+        private int mBackgroundBitmapHeight;
 
         @Override
         public void onCreate(SurfaceHolder holder) {
@@ -198,165 +395,67 @@ public class WatchFaceService extends CanvasWatchFaceService {
                     .setAcceptsTapEvents(true)
                     .build());
 
-            mCalendar = Calendar.getInstance();
+            mWallClock = new WallClock(TimeZone.getDefault());
+            mBlurEngine = new BlurEngine(WatchFaceService.this);
+            mComplicationWorker = new ComplicationWorker(WatchFaceService.this, new ComplicationWorker.Listener() {
+                @Override
+                public void onComplicationPrepared(int id, boolean ambient) {
+                    if (ambient != mAmbient) {
+                        return;
+                    }
+                    /* The low-bit ambient layer checks itself whether the dials changed. */
+                    if (!mLowBitAmbientRendering) {
+                        invalidateMinuteLayer();
+                    }
+                    invalidate();
+                }
+            });
+            mAlarmManager = (AlarmManager) getSystemService(ALARM_SERVICE);
+            mTextChangeIntent = PendingIntent.getBroadcast(WatchFaceService.this, 0,
+                    new Intent(ACTION_COMPLICATION_TEXT_CHANGE).setPackage(getPackageName()), 0);
+            mChoreographer = Choreographer.getInstance();
+            float refreshRate = ((WindowManager) getSystemService(WINDOW_SERVICE)).getDefaultDisplay().getRefreshRate();
+            mFrameIntervalNanos = (long) (DateUtils.SECOND_IN_MILLIS * 1000000 / (refreshRate > 0 ? refreshRate : 60));
             mPrefs = PreferenceManager.getDefaultSharedPreferences(getApplicationContext());
+            mConfig = new WatchFaceConfig(mPrefs);
+            mPrefs.registerOnSharedPreferenceChangeListener(mPreferenceChangeListener);
+            mIs24HourFormat = DateFormat.is24HourFormat(WatchFaceService.this);
+            mFrameStats.setEnabled(mConfig.isFrameStatsEnabled());
 
             /* Set defaults for fonts */
             mFontLight = Typeface.create("sans-serif-light", Typeface.NORMAL);
             mFontBold = Typeface.create("sans-serif", Typeface.BOLD);
             mFont = Typeface.create("sans-serif", Typeface.NORMAL);
 
-            initializeBackground();
             initializeComplication();
-            initializeWatchFace();
-            initializeNotificationCount();
+            initializeDebugOverlay();
 
-            getSettingValues();
-            updateStyle();
-        }
-
-        private void initializeBackground() {
-            mBackgroundOverlayPaint = new Paint();
+            updatePalettes();
         }
 
         private void initializeComplication() {
             mActiveComplicationDataSparseArray = new SparseArray<>(COMPLICATION_IDS.length);
             setActiveComplications(COMPLICATION_IDS);
+        }
 
-            mComplicationArcValuePaint = new Paint();
-            mComplicationArcValuePaint.setColor(mSecondaryColor);
-            mComplicationArcValuePaint.setStrokeWidth(4f);
-            mComplicationArcValuePaint.setAntiAlias(true);
-            mComplicationArcValuePaint.setStrokeCap(Paint.Cap.SQUARE);
-            mComplicationArcValuePaint.setStyle(Paint.Style.STROKE);
-
-            mComplicationArcPaint = new Paint();
-            mComplicationArcPaint.setColor(mTertiaryColor);
-            mComplicationArcPaint.setStrokeWidth(4f);
-            mComplicationArcPaint.setAntiAlias(true);
-            mComplicationArcPaint.setStrokeCap(Paint.Cap.SQUARE);
-            mComplicationArcPaint.setStyle(Paint.Style.STROKE);
-
-
-            mComplicationCirclePaint = new Paint();
-            mComplicationCirclePaint.setColor(mQuaternaryColor);
-            mComplicationCirclePaint.setStrokeWidth(3f);
-            mComplicationCirclePaint.setAntiAlias(true);
-            mComplicationCirclePaint.setStrokeCap(Paint.Cap.SQUARE);
-            mComplicationCirclePaint.setStyle(Paint.Style.STROKE);
-
-            mComplicationPrimaryLongTextPaint = new TextPaint();
-            mComplicationPrimaryLongTextPaint.setColor(mSecondaryColor);
-            mComplicationPrimaryLongTextPaint.setAntiAlias(true);
-            mComplicationPrimaryLongTextPaint.setTypeface(mFontBold);
-
-            mComplicationPrimaryTextPaint = new Paint();
-            mComplicationPrimaryTextPaint.setColor(mSecondaryColor);
-            mComplicationPrimaryTextPaint.setAntiAlias(true);
-            mComplicationPrimaryTextPaint.setTypeface(mFontBold);
-
-            mComplicationTextPaint = new Paint();
-            mComplicationTextPaint.setColor(mTertiaryColor);
-            mComplicationTextPaint.setAntiAlias(true);
-            mComplicationTextPaint.setTypeface(mFontBold);
-
-            mComplicationLongTextPaint = new TextPaint();
-            mComplicationLongTextPaint.setColor(mTertiaryColor);
-            mComplicationLongTextPaint.setAntiAlias(true);
-            mComplicationLongTextPaint.setTypeface(mFontBold);
-        }
-
-        private void initializeWatchFace() {
-            mHourTextPaint = new Paint();
-            mHourTextPaint.setColor(mPrimaryColor);
-            mHourTextPaint.setAntiAlias(true);
-
-            mMinuteTextPaint = new Paint();
-            mMinuteTextPaint.setColor(mSecondaryColor);
-            mMinuteTextPaint.setAntiAlias(true);
-            mMinuteTextPaint.setTypeface(mFontBold);
-
-            mMinutePaint = new Paint();
-            mMinutePaint.setColor(mPrimaryColor);
-            mMinutePaint.setStrokeWidth(4f);
-            mMinutePaint.setAntiAlias(true);
-            mMinutePaint.setStrokeCap(Paint.Cap.SQUARE);
-
-            mSecondTextPaint = new Paint();
-            mSecondTextPaint.setColor(mTertiaryColor);
-            mSecondTextPaint.setAntiAlias(true);
-            mSecondTextPaint.setTextAlign(Paint.Align.LEFT);
-            mSecondTextPaint.setTypeface(mFontBold);
-
-            mSecondPaint = new Paint();
-            mSecondPaint.setColor(mSecondaryColor);
-            mSecondPaint.setStrokeWidth(6f);
-            mSecondPaint.setAntiAlias(true);
-            mSecondPaint.setStrokeCap(Paint.Cap.BUTT);
-            mSecondPaint.setStyle(Paint.Style.STROKE);
-
-            mHourTickPaint = new Paint();
-            mHourTickPaint.setColor(mSecondaryColor);
-            mHourTickPaint.setStrokeWidth(4f);
-            mHourTickPaint.setAntiAlias(true);
-            mHourTickPaint.setStrokeCap(Paint.Cap.SQUARE);
-
-            mTickPaint = new Paint();
-            mTickPaint.setColor(mTertiaryColor);            mMinuteTextPaint.setColor(mSecondaryColor);
-            mMinuteTextPaint.setAntiAlias(true);
-            mMinuteTextPaint.setTypeface(mFontBold);
-
-            mMinutePaint = new Paint();
-            mMinutePaint.setColor(mPrimaryColor);
-            mMinutePaint.setStrokeWidth(4f);
-            mMinutePaint.setAntiAlias(true);
-            mMinutePaint.setStrokeCap(Paint.Cap.SQUARE);
-
-            mSecondTextPaint = new Paint();
-            mSecondTextPaint.setColor(mTertiaryColor);
-            mSecondTextPaint.setAntiAlias(true);
-            mSecondTextPaint.setTextAlign(Paint.Align.LEFT);
-            mSecondTextPaint.setTypeface(mFontBold);
-
-            mSecondPaint = new Paint();
-            mSecondPaint.setColor(mSecondaryColor);
-            mSecondPaint.setStrokeWidth(6f);
-            mSecondPaint.setAntiAlias(true);
-            mSecondPaint.setStrokeCap(Paint.Cap.BUTT);
-            mSecondPaint.setStyle(Paint.Style.STROKE);
-
-            mHourTickPaint = new Paint();
-            mHourTickPaint.setColor(mSecondaryColor);
-            mHourTickPaint.setStrokeWidth(4f);
-            mHourTickPaint.setAntiAlias(true);
-            mHourTickPaint.setStrokeCap(Paint.Cap.SQUARE);
-
-            mTickPaint = new Paint();
-            mTickPaint.setColor(mTertiaryColor);
-            mTickPaint.setStrokeWidth(4f);
-            mTickPaint.setAntiAlias(true);
-            mTickPaint.setStrokeCap(Paint.Cap.SQUARE);
-        }
-
-        private void initializeNotificationCount() {
-            mNotificationBackgroundPaint = new Paint();
-
-            mNotificationCirclePaint = new Paint();
-            mNotificationCirclePaint.setStyle(Paint.Style.FILL_AND_STROKE);
-            mNotificationCirclePaint.setColor(Color.WHITE);
-            mNotificationCirclePaint.setAntiAlias(true);
-            mNotificationCirclePaint.setStrokeWidth(2);
-
-            mNotificationTextPaint = new Paint();
-            mNotificationTextPaint.setColor(mBackgroundColor);
-            mNotificationTextPaint.setTextAlign(Paint.Align.CENTER);
-            mNotificationTextPaint.setAntiAlias(true);
-            mNotificationTextPaint.setTypeface(mFontBold);
+        private void initializeDebugOverlay() {
+            mDebugPaint = new Paint();
+            mDebugPaint.setColor(Color.GREEN);
+            mDebugPaint.setAntiAlias(true);
+            mDebugPaint.setTextAlign(Paint.Align.CENTER);
         }
 
         @Override
         public void onDestroy() {
+            mPrefs.unregisterOnSharedPreferenceChangeListener(mPreferenceChangeListener);
             mUpdateTimeHandler.removeMessages(MSG_UPDATE_TIME);
+            mUpdateTimeHandler.removeCallbacks(mPrepareNextMinuteLayer);
+            mChoreographer.removeFrameCallback(mFrameCallback);
+            mBlurEngine.destroy();
+            mComplicationWorker.destroy();
+            recycleDigitAtlases();
+            recycleLayers();
+            recycleBackgroundBitmap();
             super.onDestroy();
         }
 
@@ -365,6 +464,9 @@ public class WatchFaceService extends CanvasWatchFaceService {
             super.onPropertiesChanged(properties);
             mLowBitAmbient = properties.getBoolean(PROPERTY_LOW_BIT_AMBIENT, false);
             mBurnInProtection = properties.getBoolean(PROPERTY_BURN_IN_PROTECTION, false);
+            mLowBitAmbientRendering = mAmbient && mLowBitAmbient;
+            updatePalettes();
+            invalidateStaticLayer();
         }
 
         /*
@@ -373,15 +475,27 @@ public class WatchFaceService extends CanvasWatchFaceService {
         @Override
         public void onComplicationDataUpdate(
                 int complicationId, ComplicationData complicationData) {
+            ComplicationData previousData = mActiveComplicationDataSparseArray.get(complicationId);
             // Adds/updates active complication data in the array.
             mActiveComplicationDataSparseArray.put(complicationId, complicationData);
-            invalidate();
+            if (complicationId != BACKGROUND_COMPLICATION) {
+                /* The minute layer is redrawn once the worker published the prepared dial. */
+                mComplicationWorker.setComplicationData(complicationId, complicationData);
+            }
+            /* Background images and dial borders live in the static layer. */
+            if (complicationId == BACKGROUND_COMPLICATION || previousData == null ||
+                    complicationData == null || previousData.getType() != complicationData.getType()) {
+                invalidateStaticLayer();
+                invalidate();
+            }
         }
 
 
         @Override
         public void onTimeTick() {
             super.onTimeTick();
+            /* The worker may have slept through the minute with the device. */
+            mComplicationWorker.refresh();
             invalidate();
         }
 
@@ -389,8 +503,16 @@ public class WatchFaceService extends CanvasWatchFaceService {
         public void onAmbientModeChanged(boolean inAmbientMode) {
             super.onAmbientModeChanged(inAmbientMode);
             mAmbient = inAmbientMode;
+            mLowBitAmbientRendering = mAmbient && mLowBitAmbient;
+            mComplicationWorker.setAmbient(mAmbient);
 
-            updateStyle();
+            selectPalette();
+            invalidateStaticLayer();
+            if (!mAmbient) {
+                mAlarmManager.cancel(mTextChangeIntent);
+                mUpdateTimeHandler.removeCallbacks(mPrepareNextMinuteLayer);
+                recycleNextMinuteLayer();
+            }
 
             /* Check and trigger whether or not timer should be running (only in active mode). */
             updateTimer();
@@ -400,51 +522,39 @@ public class WatchFaceService extends CanvasWatchFaceService {
         public void onApplyWindowInsets(WindowInsets insets) {
             super.onApplyWindowInsets(insets);
             mIsRound = insets.isRound();
+            updateGeometry();
+            updateComplicationStyles();
+            invalidateStaticLayer();
         }
 
-        private void updateStyle() {
-            int overlayColor = Color.argb(128, Color.red(mBackgroundColor), Color.green(mBackgroundColor), Color.blue(mBackgroundColor));
-            mBackgroundOverlayPaint.setColor(overlayColor);
-            mMinuteTextPaint.setColor(mSecondaryColor);
-            mMinutePaint.setColor(mPrimaryColor);
-            mSecondTextPaint.setColor(mTertiaryColor);
-            mSecondPaint.setColor(mSecondaryColor);
-            mHourTickPaint.setColor(mSecondaryColor);
-            mTickPaint.setColor(mTertiaryColor);
-            mComplicationArcValuePaint.setColor(mSecondaryColor);
-            mComplicationArcPaint.setColor(mTertiaryColor);
-            mComplicationCirclePaint.setColor(mQuaternaryColor);
-            mComplicationPrimaryLongTextPaint.setColor(mSecondaryColor);
-            mComplicationPrimaryTextPaint.setColor(mSecondaryColor);
-            mComplicationTextPaint.setColor(mTertiaryColor);
-            mComplicationLongTextPaint.setColor(mTertiaryColor);
+        /**
+         * Builds the interactive and ambient palettes for the current settings, surface size and
+         * device properties, only needed when one of those changed.
+         */
+        private void updatePalettes() {
+            mInteractivePalette = new Palette(mConfig, mSurfaceWidth, mSurfaceHeight, false,
+                    mLowBitAmbient, mBurnInProtection, mFont, mFontLight, mFontBold);
+            mAmbientPalette = new Palette(mConfig, mSurfaceWidth, mSurfaceHeight, true,
+                    mLowBitAmbient, mBurnInProtection, mFont, mFontLight, mFontBold);
+            selectPalette();
+            updateComplicationStyles();
+        }
 
-            if (mAmbient) {
-                mHourTextPaint.setColor(Color.WHITE);
-                mMinutePaint.setColor(Color.WHITE);
-                if (mLowBitAmbient) {
-                    mHourTickPaint.setColor(Color.WHITE);
-                    mComplicationArcValuePaint.setColor(Color.WHITE);
-                    mComplicationPrimaryLongTextPaint.setColor(Color.WHITE);
-                    mComplicationPrimaryTextPaint.setColor(Color.WHITE);
-                }
-                if (mBurnInProtection) {
-                    mHourTextPaint.setTypeface(mFontLight);
-                    mNotificationCirclePaint.setStyle(Paint.Style.STROKE);
-                    mNotificationTextPaint.setColor(Color.WHITE);
-                }
+        /**
+         * Hands the worker new styles to prepare the dials with, needed whenever the palettes,
+         * settings, surface or display properties changed.
+         */
+        private void updateComplicationStyles() {
+            mComplicationWorker.setStyles(
+                    new ComplicationStyle(mInteractivePalette, mConfig, mCenterX, mCenterY,
+                            mIsRound, false, mBurnInProtection, mLowBitAmbient),
+                    new ComplicationStyle(mAmbientPalette, mConfig, mCenterX, mCenterY,
+                            mIsRound, true, mBurnInProtection, mLowBitAmbient));
+        }
 
-            } else {
-                mHourTextPaint.setColor(mPrimaryColor);
-                mHourTextPaint.setTypeface(mFont);
-                mMinutePaint.setColor(mPrimaryColor);
-                mHourTickPaint.setColor(mSecondaryColor);
-                mComplicationArcValuePaint.setColor(mSecondaryColor);
-                mComplicationPrimaryLongTextPaint.setColor(mSecondaryColor);
-                mComplicationPrimaryTextPaint.setColor(mSecondaryColor);
-                mNotificationCirclePaint.setStyle(Paint.Style.FILL_AND_STROKE);
-                mNotificationTextPaint.setColor(mBackgroundColor);
-            }
+        private void selectPalette() {
+            mPalette = mAmbient ? mAmbientPalette : mInteractivePalette;
+            prepareDigitAtlases();
         }
 
         @Override
@@ -459,19 +569,126 @@ public class WatchFaceService extends CanvasWatchFaceService {
 
             mCenterX = width / 2;
             mCenterY = height / 2;
+            mSurfaceWidth = width;
+            mSurfaceHeight = height;
 
-            mHourTextPaint.setTextSize(width / 6);
-            mMinuteTextPaint.setTextSize(width / 15);
-            mSecondTextPaint.setTextSize(width / 15);
-            mComplicationPrimaryLongTextPaint.setTextSize(width / 23);
-            mComplicationPrimaryTextPaint.setTextSize(width / 18);
-            mComplicationLongTextPaint.setTextSize(width / 25);
-            mComplicationTextPaint.setTextSize(width / 20);
-            mNotificationTextPaint.setTextSize(width / 25);
+            mDebugPaint.setTextSize(width / 25);
 
-            int gradientColor = Color.argb(128, Color.red(mBackgroundColor), Color.green(mBackgroundColor), Color.blue(mBackgroundColor));
-            Shader shader = new LinearGradient(0, height - height / 4, 0, height, Color.TRANSPARENT, gradientColor, Shader.TileMode.CLAMP);
-            mNotificationBackgroundPaint.setShader(shader);
+            updateGeometry();
+            updatePalettes();
+
+            recycleLayers();
+            mStaticLayer = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            mStaticLayerCanvas = new Canvas(mStaticLayer);
+            mMinuteLayer = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            mMinuteLayerCanvas = new Canvas(mMinuteLayer);
+            invalidateStaticLayer();
+        }
+
+        /**
+         * Returns the digit atlas for a time text paint in the current ambient state, rendering
+         * it again if the paint's color, typeface or size changed since it was built.
+         */
+        private DigitAtlas getDigitAtlas(int atlas, Paint paint) {
+            int index = atlas * 2 + (mAmbient ? 1 : 0);
+            DigitAtlas digitAtlas = mDigitAtlases[index];
+            if (digitAtlas == null || !digitAtlas.matches(paint)) {
+                if (digitAtlas != null) {
+                    digitAtlas.recycle();
+                }
+                digitAtlas = new DigitAtlas(paint);
+                mDigitAtlases[index] = digitAtlas;
+            }
+            return digitAtlas;
+        }
+
+        private void prepareDigitAtlases() {
+            if (mCenterX == 0) {
+                return;
+            }
+            getDigitAtlas(ATLAS_HOUR, mPalette.getHourTextPaint());
+            getDigitAtlas(ATLAS_MINUTE, mPalette.getMinuteTextPaint());
+            getDigitAtlas(ATLAS_SECOND, mPalette.getSecondTextPaint());
+        }
+
+        private void recycleDigitAtlases() {
+            for (int i = 0; i < mDigitAtlases.length; i++) {
+                if (mDigitAtlases[i] != null) {
+                    mDigitAtlases[i].recycle();
+                    mDigitAtlases[i] = null;
+                }
+            }
+        }
+
+        /**
+         * Applies a new settings snapshot, with {@code changes} the
+         * {@link WatchFaceConfig#diff} of the previous one.
+         */
+        private void onConfigChanged(int changes) {
+            if ((changes & (WatchFaceConfig.CHANGED_COLORS | WatchFaceConfig.CHANGED_BACKGROUND_COLOR)) != 0) {
+                updatePalettes();
+                invalidateStaticLayer();
+            } else if ((changes & (WatchFaceConfig.CHANGED_LAYOUT | WatchFaceConfig.CHANGED_AMBIENT_COLOR)) != 0) {
+                updateComplicationStyles();
+            }
+            if ((changes & (WatchFaceConfig.CHANGED_LAYOUT | WatchFaceConfig.CHANGED_BACKGROUND_EFFECTS)) != 0) {
+                invalidateStaticLayer();
+            }
+            if ((changes & WatchFaceConfig.CHANGED_AMBIENT_COLOR) != 0 && mAmbient) {
+                invalidateStaticLayer();
+            }
+            if ((changes & (WatchFaceConfig.CHANGED_NOTIFICATION_INDICATOR | WatchFaceConfig.CHANGED_TIME_FORMAT)) != 0) {
+                invalidateMinuteLayer();
+            }
+            if ((changes & WatchFaceConfig.CHANGED_FRAME_PACING) != 0) {
+                updateRenderTier();
+                updateTimer();
+            }
+            if ((changes & WatchFaceConfig.CHANGED_DEBUG) != 0) {
+                mFrameStats.setEnabled(mConfig.isFrameStatsEnabled());
+            }
+            invalidate();
+        }
+
+        private void updateGeometry() {
+            mFaceRenderer.setGeometry(mIsRound, mCenterX, mCenterY);
+            mSecondsPathLength = FaceGeometry.getSecondsPathLength(mIsRound, mCenterX, mCenterY);
+        }
+
+        private void recycleLayers() {
+            if (mStaticLayer != null) {
+                mStaticLayer.recycle();
+                mStaticLayer = null;
+                mStaticLayerCanvas = null;
+            }
+            if (mMinuteLayer != null) {
+                mMinuteLayer.recycle();
+                mMinuteLayer = null;
+                mMinuteLayerCanvas = null;
+            }
+            recycleNextMinuteLayer();
+        }
+
+        private void recycleNextMinuteLayer() {
+            mNextMinuteLayerValid = false;
+            if (mNextMinuteLayer != null) {
+                mNextMinuteLayer.recycle();
+                mNextMinuteLayer = null;
+                mNextMinuteLayerCanvas = null;
+            }
+        }
+
+        /**
+         * Marks the static layer, and the minute layer that is composed on top of it, as stale.
+         */
+        private void invalidateStaticLayer() {
+            mStaticLayerValid = false;
+            invalidateMinuteLayer();
+        }
+
+        private void invalidateMinuteLayer() {
+            mMinuteLayerValid = false;
+            mNextMinuteLayerValid = false;
         }
 
         /**
@@ -489,9 +706,10 @@ public class WatchFaceService extends CanvasWatchFaceService {
                     break;
                 case TAP_TYPE_TAP:
                     // The user has completed the tap gesture.
-                    for (int i = 0; i < mComplicationTapBoxes.length; i++) {
-                        if (mComplicationTapBoxes[i] != null && mComplicationTapBoxes[i].contains(x, y)) {
-                            onComplicationTapped(i);
+                    for (int id : COMPLICATION_IDS) {
+                        ComplicationSnapshot snapshot = getComplicationSnapshot(id, System.currentTimeMillis());
+                        if (snapshot != null && snapshot.getTapBox().contains(x, y)) {
+                            onComplicationTapped(id);
                         }
                     }
                     break;
@@ -529,488 +747,432 @@ public class WatchFaceService extends CanvasWatchFaceService {
         public void onUnreadCountChanged(int count) {
             super.onUnreadCountChanged(count);
             mUnreadNotificationCount = count;
+            invalidateMinuteLayer();
         }
 
         @Override
         public void onNotificationCountChanged(int count) {
             super.onNotificationCountChanged(count);
             mNotificationCount = count;
-        }
-
-        private void getSettingValues() {
-            mPrimaryColor = mPrefs.getInt("settings_color_value", Color.parseColor("#18FFFF"));
-            int secondaryColor = mPrefs.getInt("settings_accent_color_value", Color.parseColor("#FFFFFF"));
-            float secondaryOpacity = Integer.parseInt(mPrefs.getString("settings_accent_color_opacity", "60")) / 100f;
-            mSecondaryColor = Color.argb(Math.round(secondaryOpacity * 255), Color.red(secondaryColor), Color.green(secondaryColor), Color.blue(secondaryColor));
-            mTertiaryColor = Color.argb(Math.round(secondaryOpacity * 152), Color.red(secondaryColor), Color.green(secondaryColor), Color.blue(secondaryColor));
-            mQuaternaryColor = Color.argb(Math.round(secondaryOpacity * 48), Color.red(secondaryColor), Color.green(secondaryColor), Color.blue(secondaryColor));
-            mComplicationBorder = mPrefs.getBoolean("settings_complication_border", true);
-            String mStyle = mPrefs.getString("settings_style", "0");
-            mStyleDigitalog = mStyle.equals("0");
-            mStyleDigital = mStyle.equals("1");
-            mStyleAnalog = mStyle.equals("2");
-            mBackgroundColor = mPrefs.getInt("settings_background_color_value", Color.BLACK);
-            Set<String> backgroundEffects = mPrefs.getStringSet("settings_background_effects", null);
-            mBackgroundEffectDarken = backgroundEffects != null && backgroundEffects.contains("0");
-            mBackgroundEffectBlur = backgroundEffects != null && backgroundEffects.contains("1");
-            mBackgroundEffectGrayscale = backgroundEffects != null && backgroundEffects.contains("2");
-            mAmbientColor = mPrefs.getBoolean("settings_ambient", false);
-            String mNotificationIndicator = mPrefs.getString("settings_notification_indicator", null);
-            mNotificationIndicatorUnread = mNotificationIndicator != null && mNotificationIndicator.equals("1");
-            mNotificationIndicatorAll = mNotificationIndicator != null && mNotificationIndicator.equals("2");
-            String mTimeFormat = mPrefs.getString("settings_time_format", null);
-            mTimeFormat24 = mTimeFormat != null && mTimeFormat.equals("1");
-            mTimeFormat12 = mTimeFormat != null && mTimeFormat.equals("2");
+            invalidateMinuteLayer();
         }
 
         @Override
         public void onDraw(Canvas canvas, Rect bounds) {
-            long now = System.currentTimeMillis();
-            mCalendar.setTimeInMillis(now);
+            long frameStart = mFrameStats.begin();
+            long now = mPacedTimeMillis != 0 ? mPacedTimeMillis : System.currentTimeMillis();
+            mPacedTimeMillis = 0;
+            mWallClock.setTimeInMillis(now);
+            mFrameStats.setConfiguration(mConfig.isStyleDigital() ? FrameStats.STYLE_DIGITAL :
+                    mConfig.isStyleAnalog() ? FrameStats.STYLE_ANALOG : FrameStats.STYLE_DIGITALOG, mAmbient, mIsRound);
+
+            if (mLowBitAmbientRendering) {
+                drawLowBitAmbient(canvas, now);
+                mFrameStats.end(FrameStats.STAGE_FRAME, frameStart);
+                scheduleNextMinuteLayer();
+                return;
+            }
 
-            drawBackground(canvas, now, BACKGROUND_COMPLICATION);
+            if (!mStaticLayerValid) {
+                drawStaticLayer(mStaticLayerCanvas, now);
+                mStaticLayerValid = true;
+            }
 
-            float offset = mStyleDigital ? mCenterX * 0.13f : 0;
+            long minute = now / DateUtils.MINUTE_IN_MILLIS;
+            if (mAmbient && minute != mMinuteLayerMinute && mNextMinuteLayerValid &&
+                    mNextMinuteLayerMinute == minute && !hasComplicationTextChanged(now)) {
+                Bitmap layer = mMinuteLayer;
+                Canvas layerCanvas = mMinuteLayerCanvas;
+                mMinuteLayer = mNextMinuteLayer;
+                mMinuteLayerCanvas = mNextMinuteLayerCanvas;
+                mNextMinuteLayer = layer;
+                mNextMinuteLayerCanvas = layerCanvas;
+                mNextMinuteLayerValid = false;
+                mMinuteLayerValid = true;
+                mMinuteLayerMinute = minute;
+            }
+            /*
+             * Time dependent complication texts (countdowns, time since) are prepared again by the
+             * worker when they change, which invalidates the minute layer.
+             */
+            if (!mMinuteLayerValid || minute != mMinuteLayerMinute) {
+                drawMinuteLayer(mMinuteLayerCanvas, now);
+                mMinuteLayerValid = true;
+                mMinuteLayerMinute = minute;
+            }
+            if (mAmbient) {
+                updateTextChangeAlarm(now);
+                scheduleNextMinuteLayer();
+            }
 
-            drawComplication(canvas, now, TOP_DIAL_COMPLICATION, mCenterX, mCenterY / 2 - offset);
-            drawComplication(canvas, now, LEFT_DIAL_COMPLICATION, mCenterX / 2 - offset, mCenterY);
-            drawComplication(canvas, now, BOTTOM_DIAL_COMPLICATION, mCenterX, mCenterY * 1.5f + offset);
-            drawComplication(canvas, now, RIGHT_DIAL_COMPLICATION, mCenterX * 1.5f + offset, mCenterY);
+            canvas.drawBitmap(mMinuteLayer, 0, 0, null);
 
-            if (mStyleDigitalog || mStyleAnalog) {
-                drawTicks(canvas);
+            if (!mAmbient && mRenderTier != TIER_SECONDS_OFF) {
+                long start = mFrameStats.begin();
+                if (mConfig.isStyleDigital()) {
+                    drawDigitalSeconds(canvas);
+                } else {
+                    drawSeconds(canvas);
+                }
+                mFrameStats.end(FrameStats.STAGE_SECONDS, start);
             }
-            if (!mAmbient && !mStyleDigital) {
-                drawSeconds(canvas);
+            mFrameStats.end(FrameStats.STAGE_FRAME, frameStart);
+
+            if (mConfig.isDebugOverlay()) {
+                drawDebugOverlay(canvas);
             }
-            if (mStyleDigitalog) {
-                drawDigitalogTime(canvas);
-            } else if (mStyleDigital) {
-                drawDigitalTime(canvas);
+        }
+
+        /**
+         * Draws the frame time percentiles of the current configuration and the pacing
+         * counters. Only meant for debugging, it formats strings every frame.
+         */
+        private void drawDebugOverlay(Canvas canvas) {
+            float lineHeight = mDebugPaint.getTextSize() * 1.2f;
+            float y = mCenterY / 2;
+            canvas.drawText("frame " + mFrameStats.getPercentile(FrameStats.STAGE_FRAME, 0.5f) +
+                            "/" + mFrameStats.getPercentile(FrameStats.STAGE_FRAME, 0.95f) +
+                            "/" + mFrameStats.getMax(FrameStats.STAGE_FRAME) + "us",
+                    mCenterX, y, mDebugPaint);
+            canvas.drawText("seconds " + mFrameStats.getPercentile(FrameStats.STAGE_SECONDS, 0.5f) +
+                            "/" + mFrameStats.getPercentile(FrameStats.STAGE_SECONDS, 0.95f) +
+                            "/" + mFrameStats.getMax(FrameStats.STAGE_SECONDS) + "us",
+                    mCenterX, y + lineHeight, mDebugPaint);
+            canvas.drawText("late " + mLateFrames + " dropped " + mDroppedFrames +
+                            " skipped " + mSkippedFrames + " tier " + mRenderTier,
+                    mCenterX, y + lineHeight * 2, mDebugPaint);
+        }
+
+        /**
+         * Draws a low-bit ambient frame. The static layer holds the whole face except the time
+         * and is only redrawn when a dial or the notification count changed, so a time tick is a
+         * blit and the time.
+         */
+        private void drawLowBitAmbient(Canvas canvas, long now) {
+            if (!mStaticLayerValid || !mMinuteLayerValid || hasLowBitAmbientTextChanged(now)) {
+                drawLowBitAmbientLayer(mStaticLayerCanvas, now);
+                mStaticLayerValid = true;
+                mMinuteLayerValid = true;
+                mNextMinuteLayerValid = false;
             }
+            updateTextChangeAlarm(now);
 
-            drawNotificationCount(canvas);
+            if (mNextMinuteLayerValid && mNextMinuteLayerMinute == now / DateUtils.MINUTE_IN_MILLIS) {
+                canvas.drawBitmap(mNextMinuteLayer, 0, 0, null);
+                return;
+            }
+            canvas.drawBitmap(mStaticLayer, 0, 0, null);
+            long start = mFrameStats.begin();
+            drawTime(canvas);
+            mFrameStats.end(FrameStats.STAGE_TIME, start);
         }
 
-        private void drawBackground(Canvas canvas, long currentTimeMillis, int id) {
-            ComplicationData complicationData = mActiveComplicationDataSparseArray.get(id);
-            canvas.drawColor(mAmbient && (mBurnInProtection || !mAmbientColor) ? Color.BLACK : mBackgroundColor);
-            if ((complicationData != null) && (complicationData.isActive(currentTimeMillis))) {
-                if (complicationData.getType() == ComplicationData.TYPE_LARGE_IMAGE) {
-                    Icon largeImage = complicationData.getLargeImage();
-                    if (largeImage != null && !(mAmbient && (mBurnInProtection || mLowBitAmbient))) {
-                        Drawable drawable = largeImage.loadDrawable(getApplicationContext());
-                        if (drawable != null) {
-                            if (mBackgroundEffectBlur) {
-                                drawable = convertToBlur(drawable, 10);
-                            }
-                            if (mBackgroundEffectGrayscale || (mAmbient && !mAmbientColor)) {
-                                drawable = convertToGrayscale(drawable);
-                            }
-                            drawable.setBounds(0, 0, (int) mCenterX * 2, (int) mCenterY * 2);
-                            drawable.draw(canvas);
-                            if (mBackgroundEffectDarken) {
-                                canvas.drawRect(0, 0, mCenterX * 2, mCenterY * 2, mBackgroundOverlayPaint);
-                            }
-                        }
-                    }
+        /**
+         * Whether a dial in the low-bit ambient layer differs from its latest snapshot, in its
+         * texts or in the data or style it was prepared from.
+         */
+        private boolean hasLowBitAmbientTextChanged(long currentTimeMillis) {
+            for (int id : COMPLICATION_IDS) {
+                ComplicationSnapshot snapshot = getComplicationSnapshot(id, currentTimeMillis);
+                if (snapshot == null ? mLowBitAmbientData[id] != null :
+                        snapshot.getStyle() != mLowBitAmbientStyles[id] ||
+                                snapshot.getData() != mLowBitAmbientData[id] ||
+                                !TextUtils.equals(snapshot.getText(), mLowBitAmbientTexts[id]) ||
+                                !TextUtils.equals(snapshot.getTitle(), mLowBitAmbientTitles[id])) {
+                    return true;
                 }
             }
+            return false;
         }
 
-        private void drawComplication(Canvas canvas, long currentTimeMillis, int id, float centerX, float centerY) {
-            ComplicationData complicationData = mActiveComplicationDataSparseArray.get(id);
+        /**
+         * Whether a dial text changed since the worker last prepared the dials that are shown,
+         * its snapshot is then about to be replaced.
+         */
+        private boolean hasComplicationTextChanged(long currentTimeMillis) {
+            return mComplicationWorker.getNextChangeTime(mAmbient) <= currentTimeMillis;
+        }
 
-            if ((complicationData != null) && (complicationData.isActive(currentTimeMillis))) {
-                switch (complicationData.getType()) {
-                    case ComplicationData.TYPE_RANGED_VALUE:
-                        drawRangeComplication(canvas,
-                                complicationData,
-                                currentTimeMillis,
-                                id);
-                        break;
-                    case ComplicationData.TYPE_SMALL_IMAGE:
-                        drawSmallImageComplication(canvas,
-                                complicationData,
-                                centerX,
-                                centerY,
-                                id);
-                        break;
-                    case ComplicationData.TYPE_LONG_TEXT:
-                        drawLongTextComplication(canvas,
-                                complicationData,
-                                currentTimeMillis,
-                                centerX,
-                                centerY,
-                                id);
-                        break;
-                    case ComplicationData.TYPE_SHORT_TEXT:
-                        drawShortTextComplication(canvas,
-                                complicationData,
-                                currentTimeMillis,
-                                centerX,
-                                centerY,
-                                id);
-                        break;
-                    case ComplicationData.TYPE_ICON:
-                        drawIconComplication(canvas,
-                                complicationData,
-                                centerX,
-                                centerY,
-                                id);
-                        break;
-                }
-            }
+        /**
+         * Renders the ambient frame of the next minute once the current frame is shown.
+         */
+        private void scheduleNextMinuteLayer() {
+            mUpdateTimeHandler.removeCallbacks(mPrepareNextMinuteLayer);
+            mUpdateTimeHandler.post(mPrepareNextMinuteLayer);
         }
 
-        private String complicationNumberString(float val) {
-            if (val > 100000) {
-                return String.valueOf(Math.round(val / 100000) + "m");
-            } else if (val > 1000) {
-                return String.valueOf(Math.round(val / 1000) + "k");
+        private void prepareNextMinuteLayer() {
+            if (!mAmbient || !isVisible() || mStaticLayer == null || !mStaticLayerValid) {
+                return;
+            }
+            long nextMinute = System.currentTimeMillis() / DateUtils.MINUTE_IN_MILLIS + 1;
+            if (mNextMinuteLayerValid && mNextMinuteLayerMinute == nextMinute) {
+                return;
+            }
+            if (mNextMinuteLayer == null) {
+                mNextMinuteLayer = Bitmap.createBitmap(mStaticLayer.getWidth(), mStaticLayer.getHeight(), Bitmap.Config.ARGB_8888);
+                mNextMinuteLayerCanvas = new Canvas(mNextMinuteLayer);
+            }
+            /* The wall clock is set again at the start of every frame. */
+            long nextMinuteMillis = nextMinute * DateUtils.MINUTE_IN_MILLIS;
+            mWallClock.setTimeInMillis(nextMinuteMillis);
+            if (mLowBitAmbientRendering) {
+                mNextMinuteLayerCanvas.drawBitmap(mStaticLayer, 0, 0, null);
+                drawTime(mNextMinuteLayerCanvas);
             } else {
-                return String.valueOf(Math.round(val));
+                drawMinuteLayer(mNextMinuteLayerCanvas, nextMinuteMillis);
             }
+            mNextMinuteLayerValid = true;
+            mNextMinuteLayerMinute = nextMinute;
         }
 
-        private void drawRangeComplication(Canvas canvas, ComplicationData data, long currentTimeMillis, int id) {
-            float min = data.getMinValue();
-            float max = data.getMaxValue();
-            float dataVal = data.getValue();
-            float arcVal = (dataVal > max) ? max : dataVal;
+        private void drawLowBitAmbientLayer(Canvas canvas, long currentTimeMillis) {
+            canvas.drawColor(Color.BLACK);
+            drawComplications(canvas, currentTimeMillis, true);
+            if (mConfig.isStyleDigitalog() || mConfig.isStyleAnalog()) {
+                long start = mFrameStats.begin();
+                drawTicks(canvas);
+                mFrameStats.end(FrameStats.STAGE_TICKS, start);
+            }
+            drawComplications(canvas, currentTimeMillis, false);
+            long start = mFrameStats.begin();
+            drawNotificationCount(canvas);
+            mFrameStats.end(FrameStats.STAGE_NOTIFICATIONS, start);
+
+            for (int id : COMPLICATION_IDS) {
+                ComplicationSnapshot snapshot = getComplicationSnapshot(id, currentTimeMillis);
+                mLowBitAmbientStyles[id] = snapshot != null ? snapshot.getStyle() : null;
+                mLowBitAmbientData[id] = snapshot != null ? snapshot.getData() : null;
+                mLowBitAmbientTexts[id] = snapshot != null ? snapshot.getText() : null;
+                mLowBitAmbientTitles[id] = snapshot != null ? snapshot.getTitle() : null;
+            }
+        }
 
-            ComplicationData bottomComplicationData = mActiveComplicationDataSparseArray.get(BOTTOM_DIAL_COMPLICATION);
+        private void drawStaticLayer(Canvas canvas, long currentTimeMillis) {
+            long start = mFrameStats.begin();
+            drawBackground(canvas, currentTimeMillis, BACKGROUND_COMPLICATION);
+            mFrameStats.end(FrameStats.STAGE_BACKGROUND, start);
+            drawComplications(canvas, currentTimeMillis, true);
+            if (mConfig.isStyleDigitalog() || mConfig.isStyleAnalog()) {
+                start = mFrameStats.begin();
+                drawTicks(canvas);
+                mFrameStats.end(FrameStats.STAGE_TICKS, start);
+            }
+        }
 
+        private void drawMinuteLayer(Canvas canvas, long currentTimeMillis) {
+            canvas.drawBitmap(mStaticLayer, 0, 0, null);
+            drawComplications(canvas, currentTimeMillis, false);
+            long start = mFrameStats.begin();
+            drawTime(canvas);
+            mFrameStats.end(FrameStats.STAGE_TIME, start);
+            start = mFrameStats.begin();
+            drawNotificationCount(canvas);
+            mFrameStats.end(FrameStats.STAGE_NOTIFICATIONS, start);
+        }
 
-            float centerX;
-            float centerY;
-            float radius;
-            float startAngle = -90;
+        private void drawTime(Canvas canvas) {
+            if (mConfig.isStyleDigitalog()) {
+                drawDigitalogTime(canvas);
+            } else if (mConfig.isStyleDigital()) {
+                drawDigitalTime(canvas);
+            } else if (mConfig.isStyleAnalog()) {
+                drawMinutes(canvas);
+            }
+        }
 
-            /*
-            If bottom complication data exists then only the right space is available
-            instead of the bottom right space.
-            */
-            float offset = mStyleDigital ? mCenterX * 0.1f : 0;
-
-            if (bottomComplicationData != null &&
-                    bottomComplicationData.getType() != ComplicationData.TYPE_EMPTY &&
-                    bottomComplicationData.getType() != ComplicationData.TYPE_NO_DATA &&
-                    bottomComplicationData.isActive(currentTimeMillis)) {
-                centerX = mCenterX * 1.5f + offset;
-                centerY = mCenterY;
-                radius = mCenterX / 4;
-            } else {
-                centerX = mCenterX + mCenterX / 4 + 10 + offset * 1.3f;
-                centerY = mCenterY + mCenterY / 4 + 10 + offset * 0.3f;
-                radius = mCenterX / 2;
-                if (!mIsRound) {
-                    radius *= 1.2f;
-                }
-                radius -= 20;
-            }
-
-            mComplicationTapBoxes[id] = new RectF(centerX - radius,
-                    centerY - radius,
-                    centerX + radius,
-                    centerY + radius);
-
-            Bitmap arcBitmap = Bitmap.createBitmap((int) radius * 2 + 4, (int) radius * 2 + 4, Bitmap.Config.ARGB_8888);
-            Canvas arcCanvas = new Canvas(arcBitmap);
-            Path path = new Path();
-            path.addArc(2, 2, radius * 2 + 2, radius * 2 + 2,
-                    -90 + (arcVal - min) / (max - min) * 270,
-                    270 - (arcVal - min) / (max - min) * 270);
-
-            int complicationSteps = 10;
-            for (int tickIndex = 1; tickIndex < complicationSteps; tickIndex++) {
-                float tickRot = (float) (tickIndex * Math.PI * 3 / 2 / complicationSteps - startAngle / 180 * Math.PI - Math.PI / 2);
-                float innerX = (float) Math.sin(tickRot) * (radius - 4 - (0.05f * mCenterX));
-                float innerY = (float) -Math.cos(tickRot) * (radius - 4 - (0.05f * mCenterX));
-                float outerX = (float) Math.sin(tickRot) * (radius - 4);
-                float outerY = (float) -Math.cos(tickRot) * (radius - 4);
-                path.moveTo(radius + innerX + 2, radius + innerY + 2);
-                path.lineTo(radius + outerX + 2, radius + outerY + 2);
-            }
-            arcCanvas.drawPath(path, mComplicationArcPaint);
-
-            float valRot = (float) ((arcVal - min) * Math.PI * 3 / 2 / (max - min) - startAngle / 180 * Math.PI - Math.PI / 2);
-            Path valuePath = new Path();
-            valuePath.addArc(2, 2, radius * 2 + 2, radius * 2 + 2,
-                    -90, (arcVal - min) / (max - min) * 270 + 0.0001f);
-            valuePath.lineTo((float) Math.sin(valRot) * (radius - (0.15f * mCenterX)) + radius + 2, (float) -Math.cos(valRot) * (radius - (0.15f * mCenterX)) + radius + 2);
-            mComplicationArcValuePaint.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.CLEAR));
-            arcCanvas.drawPath(valuePath, mComplicationArcValuePaint);
-            mComplicationArcValuePaint.setXfermode(null);
-            arcCanvas.drawPath(valuePath, mComplicationArcValuePaint);
-
-            canvas.drawBitmap(arcBitmap, centerX - radius - 2, centerY - radius - 2, null);
-
-            mComplicationTextPaint.setTextAlign(Paint.Align.RIGHT);
-            canvas.drawText(complicationNumberString(min),
-                    centerX + -6,
-                    centerY - radius - mComplicationTextPaint.descent() - mComplicationTextPaint.ascent(),
-                    mComplicationTextPaint);
-
-            mComplicationTextPaint.setTextAlign(Paint.Align.LEFT);
-            canvas.drawText(complicationNumberString(max),
-                    centerX - radius - 4,
-                    centerY - 6,
-                    mComplicationTextPaint);
-
-            Icon icon = mAmbient && mBurnInProtection ? data.getBurnInProtectionIcon() : data.getIcon();
-            if (icon != null) {
-                Drawable drawable = icon.loadDrawable(getApplicationContext());
-                if (drawable != null) {
-                    int size = (int) Math.round(0.15 * mCenterX);
-                    drawable.setTint(mComplicationArcValuePaint.getColor());
-                    drawable.setBounds(Math.round(centerX - size / 2), Math.round(centerY - size / 2), Math.round(centerX + size / 2), Math.round(centerY + size / 2));
-                    drawable.draw(canvas);
-                }
-            } else {
-                mComplicationPrimaryTextPaint.setTextAlign(Paint.Align.CENTER);
-                canvas.drawText(complicationNumberString(dataVal),
-                        centerX,
-                        centerY - (mComplicationPrimaryTextPaint.descent() + mComplicationPrimaryTextPaint.ascent()) / 2,
-                        mComplicationPrimaryTextPaint);
-            }
-        }
-
-        private void drawLongTextComplication(Canvas canvas, ComplicationData data,
-                                              long currentTimeMillis, float centerX,
-                                              float centerY, int id) {
-            ComplicationText text = data.getLongText();
-            String textText = text != null ? text.getText(getApplicationContext(), currentTimeMillis).toString() : null;
-            ComplicationText title = data.getLongTitle();
-            String titleText = title != null ? title.getText(getApplicationContext(), currentTimeMillis).toString() : null;
-            Icon icon = mBurnInProtection && mAmbient && data.getBurnInProtectionIcon() != null ? data.getBurnInProtectionIcon() : data.getIcon();
-            Icon image = data.getSmallImage();
-
-            float height = mCenterY / 4;
-            float width = mCenterX * 1.2f;
-            if (!mIsRound) {
-                width = mCenterX * 1.5f;
-                centerY += mCenterY / 16;
-            }
-            float maxWidth = width;
-
-            Rect bounds = new Rect();
-            Rect bounds2 = new Rect();
-            float textWidth = 0;
-            float titleWidth = 0;
-            if (textText != null) {
-                mComplicationPrimaryLongTextPaint.getTextBounds(textText, 0, textText.length(), bounds);
-                textWidth = bounds.width() + height / 2;
-            }
-            if (titleText != null) {
-                mComplicationLongTextPaint.getTextBounds(titleText, 0, titleText.length(), bounds2);
-                titleWidth = bounds2.width() + height / 2;
-            }
-            if (textWidth > titleWidth && textWidth > 0) {
-                width = textWidth;
-            }
-            if (textWidth < titleWidth && titleWidth > 0) {
-                width = titleWidth;
-            }
-            if (image != null && !(mAmbient && mBurnInProtection)) {
-                width += height + 8;
-            } else if (icon != null) {
-                width += height;
-            }
-            boolean ellipsize = false;
-            if (width > maxWidth) {
-                width = maxWidth;
-                ellipsize = true;
-            }
-
-            RectF tapbox = new RectF(centerX - width / 2,
-                    centerY - height / 2,
-                    centerX + width / 2,
-                    centerY + height / 2);
-
-            mComplicationTapBoxes[id] = tapbox;
-
-            if (mComplicationBorder) {
-                Path path = new Path();
-                path.moveTo(tapbox.left + height / 2, tapbox.top);
-                path.lineTo(tapbox.right - height / 2, tapbox.top);
-                path.arcTo(tapbox.right - height, tapbox.top, tapbox.right, tapbox.bottom, -90, 180, false);
-                path.lineTo(tapbox.left + height / 2, tapbox.bottom);
-                path.arcTo(tapbox.left, tapbox.top, tapbox.left + height, tapbox.bottom, 90, 180, false);
-                canvas.drawPath(path, mComplicationCirclePaint);
-            }
-
-            float textY = centerY - (mComplicationPrimaryLongTextPaint.descent() + mComplicationPrimaryLongTextPaint.ascent() / 2);
-            float textX = tapbox.left + height / 4;
-            float textW = width - height / 4;
-
-            if (image != null && !(mAmbient && mBurnInProtection)) {
-                Drawable drawable = image.loadDrawable(getApplicationContext());
-                if (drawable != null) {
-                    if (mAmbient && !mAmbientColor) {
-                        drawable = convertToGrayscale(drawable);
+        /**
+         * Draws the four dials, or only their borders when {@code border} is set. Borders don't
+         * depend on the complication values so they are drawn into the static layer.
+         */
+        private void drawComplications(Canvas canvas, long currentTimeMillis, boolean border) {
+            drawComplication(canvas, currentTimeMillis, TOP_DIAL_COMPLICATION, border);
+            drawComplication(canvas, currentTimeMillis, LEFT_DIAL_COMPLICATION, border);
+            drawComplication(canvas, currentTimeMillis, BOTTOM_DIAL_COMPLICATION, border);
+            drawComplication(canvas, currentTimeMillis, RIGHT_DIAL_COMPLICATION, border);
+        }
+
+        private void drawBackground(Canvas canvas, long currentTimeMillis, int id) {
+            ComplicationData complicationData = mActiveComplicationDataSparseArray.get(id);
+            canvas.drawColor(mAmbient && (mBurnInProtection || !mConfig.isAmbientColor()) ? Color.BLACK : mConfig.getBackgroundColor());
+            if ((complicationData != null) && (complicationData.isActive(currentTimeMillis))) {
+                if (complicationData.getType() == ComplicationData.TYPE_LARGE_IMAGE) {
+                    Icon largeImage = complicationData.getLargeImage();
+                    if (largeImage != null && !(mAmbient && (mBurnInProtection || mLowBitAmbient))) {
+                        Bitmap bitmap = getBackgroundBitmap(largeImage);
+                        if (bitmap != null) {
+                            canvas.drawBitmap(bitmap, 0, 0, null);
+                        }
                     }
-                    drawable = convertToCircle(drawable);
-                    drawable.setBounds(Math.round(tapbox.left + 2),
-                            Math.round(tapbox.top + 2),
-                            Math.round(tapbox.left + height - 2),
-                            Math.round(tapbox.bottom - 2));
-                    drawable.draw(canvas);
-
-                    textX = tapbox.left + height + 8;
-                    textW = width - (textX - tapbox.left) - height / 4;
-                }
-            } else if (icon != null) {
-                Drawable drawable = icon.loadDrawable(getApplicationContext());
-                if (drawable != null) {
-                    drawable.setTint(mComplicationPrimaryLongTextPaint.getColor());
-                    int size = (int) Math.round(0.15 * mCenterX);
-                    drawable.setBounds(Math.round(tapbox.left + height / 2 - size / 2),
-                            Math.round(tapbox.top + height / 2 - size / 2),
-                            Math.round(tapbox.left + height / 2 + size / 2),
-                            Math.round(tapbox.top + height / 2 + size / 2));
-                    drawable.draw(canvas);
-
-                    textX = tapbox.left + height;
-                    textW = width - (textX - tapbox.left) - height / 4;
                 }
             }
+        }
 
-            if (title != null) {
-                canvas.drawText(
-                        ellipsize ? TextUtils.ellipsize(
-                                titleText,
-                                mComplicationLongTextPaint,
-                                textW,
-                                TextUtils.TruncateAt.END
-                        ).toString() : titleText,
-                        textX,
-                        centerY - mComplicationLongTextPaint.descent() - mComplicationLongTextPaint.ascent() + 4,
-                        mComplicationLongTextPaint);
-                textY = centerY - 4;
-            }
-
-            canvas.drawText(
-                    ellipsize ? TextUtils.ellipsize(
-                            textText,
-                            mComplicationPrimaryLongTextPaint,
-                            textW,
-                            TextUtils.TruncateAt.END
-                    ).toString() : textText,
-                    textX,
-                    textY,
-                    mComplicationPrimaryLongTextPaint);
-        }
-
-        private void drawShortTextComplication(Canvas canvas, ComplicationData data,
-                                               long currentTimeMillis, float centerX,
-                                               float centerY, int id) {
-            ComplicationText title = data.getShortTitle();
-            ComplicationText text = data.getShortText();
-            Icon icon = mBurnInProtection && mAmbient && data.getBurnInProtectionIcon() != null ? data.getBurnInProtectionIcon() : data.getIcon();
-
-            float radius = mCenterX / 4;
+        /**
+         * Returns the background image processed with the current effects at surface size,
+         * reprocessing it only when the image, effects, ambient state or surface size changed.
+         * The image is loaded asynchronously and blurred on the {@link BlurEngine} thread, until
+         * it is done the last processed bitmap is returned.
+         */
+        private Bitmap getBackgroundBitmap(Icon largeImage) {
+            int width = (int) mCenterX * 2;
+            int height = (int) mCenterY * 2;
+            int overlayColor = mPalette.getBackgroundOverlayPaint().getColor();
+            boolean grayscale = mConfig.isBackgroundEffectGrayscale() || (mAmbient && !mConfig.isAmbientColor());
+            if (mBackgroundBitmapIcon == largeImage &&
+                    mBackgroundBitmapDarken == mConfig.isBackgroundEffectDarken() &&
+                    mBackgroundBitmapBlur == mConfig.isBackgroundEffectBlur() &&
+                    mBackgroundBitmapGrayscale == grayscale &&
+                    mBackgroundBitmapAmbient == mAmbient &&
+                    mBackgroundBitmapOverlayColor == overlayColor &&
+                    mBackgroundBitmapWidth == width &&
+                    mBackgroundBitmapHeight == height) {
+                return mBackgroundBitmap;
+            }
 
-            mComplicationTapBoxes[id] = new RectF(centerX - radius,
-                    centerY - radius,
-                    centerX + radius,
-                    centerY + radius);
+            mBackgroundRequest++;
+            mBackgroundBitmapIcon = largeImage;
+            mBackgroundBitmapDarken = mConfig.isBackgroundEffectDarken();
+            mBackgroundBitmapBlur = mConfig.isBackgroundEffectBlur();
+            mBackgroundBitmapGrayscale = grayscale;
+            mBackgroundBitmapAmbient = mAmbient;
+            mBackgroundBitmapOverlayColor = overlayColor;
+            mBackgroundBitmapWidth = width;
+            mBackgroundBitmapHeight = height;
+
+            final int request = mBackgroundRequest;
+            largeImage.loadDrawableAsync(getApplicationContext(), new Icon.OnDrawableLoadedListener() {
+                @Override
+                public void onDrawableLoaded(Drawable drawable) {
+                    if (request != mBackgroundRequest) {
+                        return;
+                    }
+                    if (drawable == null) {
+                        recycleBackgroundBitmap();
+                    } else if (mBackgroundBitmapBlur) {
+                        mBlurEngine.blur(drawableToBitmap(drawable), 10, request, mBlurCallback);
+                        return;
+                    } else {
+                        setBackgroundBitmap(drawable);
+                    }
+                    invalidateStaticLayer();
+                    invalidate();
+                }
+            }, mUpdateTimeHandler);
+            return mBackgroundBitmap;
+        }
 
-            if (mComplicationBorder) {
-                canvas.drawCircle(centerX, centerY, radius, mComplicationCirclePaint);
+        private final BlurEngine.Callback mBlurCallback = new BlurEngine.Callback() {
+            @Override
+            public void onBlurred(Bitmap bitmap, int token) {
+                if (token != mBackgroundRequest) {
+                    bitmap.recycle();
+                    return;
+                }
+                setBackgroundBitmap(new BitmapDrawable(getResources(), bitmap));
+                bitmap.recycle();
+                invalidateStaticLayer();
+                invalidate();
             }
+        };
 
-            mComplicationPrimaryTextPaint.setTextAlign(Paint.Align.CENTER);
-            mComplicationTextPaint.setTextAlign(Paint.Align.CENTER);
+        /**
+         * Renders the drawable with the requested grayscale and darken effects into a new
+         * surface sized background bitmap.
+         */
+        private void setBackgroundBitmap(Drawable drawable) {
+            if (mBackgroundBitmapGrayscale) {
+                drawable = convertToGrayscale(drawable);
+            }
+            Bitmap bitmap = Bitmap.createBitmap(mBackgroundBitmapWidth, mBackgroundBitmapHeight, Bitmap.Config.ARGB_8888);
+            Canvas canvas = new Canvas(bitmap);
+            drawable.setBounds(0, 0, mBackgroundBitmapWidth, mBackgroundBitmapHeight);
+            drawable.draw(canvas);
+            if (mBackgroundBitmapDarken) {
+                canvas.drawRect(0, 0, mBackgroundBitmapWidth, mBackgroundBitmapHeight, mPalette.getBackgroundOverlayPaint());
+            }
+            recycleBackgroundBitmap();
+            mBackgroundBitmap = bitmap;
+        }
 
-            float textY = centerY - (mComplicationPrimaryTextPaint.descent() + mComplicationPrimaryTextPaint.ascent() / 2);
+        private void recycleBackgroundBitmap() {
+            if (mBackgroundBitmap != null) {
+                mBackgroundBitmap.recycle();
+                mBackgroundBitmap = null;
+            }
+        }
 
-            if (icon != null) {
-                Drawable drawable = icon.loadDrawable(getApplicationContext());
-                if (drawable != null) {
-                    drawable.setTint(mComplicationPrimaryTextPaint.getColor());
-                    int size = (int) Math.round(0.15 * mCenterX);
-                    drawable.setBounds(Math.round(centerX - size / 2), Math.round(centerY - size - 2), Math.round(centerX + size / 2), Math.round(centerY - 2));
-                    drawable.draw(canvas);
+        private void drawComplication(Canvas canvas, long currentTimeMillis, int id, boolean border) {
+            ComplicationData complicationData = mActiveComplicationDataSparseArray.get(id);
 
-                    textY = centerY - mComplicationPrimaryTextPaint.descent() - mComplicationPrimaryTextPaint.ascent() + 4;
+            if ((complicationData != null) && (complicationData.isActive(currentTimeMillis))) {
+                if (border) {
+                    FaceGeometry.getDialCenter(id, mConfig.isStyleDigital(), mCenterX, mCenterY, mDialCenter);
+                    drawComplicationBorder(canvas, complicationData, mDialCenter[0], mDialCenter[1]);
+                } else {
+                    long start = mFrameStats.begin();
+                    ComplicationSnapshot snapshot = getComplicationSnapshot(id, currentTimeMillis);
+                    if (snapshot != null) {
+                        snapshot.draw(canvas);
+                    }
+                    mFrameStats.end(FrameStats.STAGE_COMPLICATION + id, start);
                 }
-            } else if (title != null) {
-                canvas.drawText(title.getText(getApplicationContext(), currentTimeMillis).toString().toUpperCase(),
-                        centerX,
-                        centerY - mComplicationTextPaint.descent() - mComplicationTextPaint.ascent() + 4,
-                        mComplicationTextPaint);
-                textY = centerY - 4;
             }
-
-            canvas.drawText(text.getText(getApplicationContext(), currentTimeMillis).toString(),
-                    centerX,
-                    textY,
-                    mComplicationPrimaryTextPaint);
         }
 
-        private void drawIconComplication(Canvas canvas, ComplicationData data,
-                                          float centerX, float centerY, int id) {
-            float radius = mCenterX / 4;
+        /**
+         * Returns the prepared dial to draw, or null while none was prepared yet. Until newer
+         * data or styles are prepared the last published dial keeps being drawn, so rebuilding
+         * the palettes or the surface doesn't blank the dials.
+         */
+        private ComplicationSnapshot getComplicationSnapshot(int id, long currentTimeMillis) {
+            ComplicationData data = mActiveComplicationDataSparseArray.get(id);
+            if (id == BACKGROUND_COMPLICATION || data == null || !data.isActive(currentTimeMillis)) {
+                return null;
+            }
+            return mComplicationWorker.get(id, mAmbient);
+        }
 
-            mComplicationTapBoxes[id] = new RectF(centerX - radius,
-                    centerY - radius,
-                    centerX + radius,
-                    centerY + radius);
-
-            Icon icon = mAmbient && mBurnInProtection ? data.getBurnInProtectionIcon() : data.getSmallImage();
-            if (icon != null) {
-                Drawable drawable = icon.loadDrawable(getApplicationContext());
-                if (drawable != null) {
-                    int size = (int) Math.round(0.15 * mCenterX);
-                    drawable.setTint(mComplicationPrimaryTextPaint.getColor());
-                    drawable.setBounds(Math.round(centerX - size), Math.round(centerY - size), Math.round(centerX + size), Math.round(centerY + size));
-                    drawable.draw(canvas);
-                    if (mComplicationBorder) {
-                        canvas.drawCircle(centerX, centerY, radius, mComplicationCirclePaint);
-                    }
-                }
+        /**
+         * In ambient mode the face is only redrawn every minute, an alarm wakes it up when a
+         * text changes in between.
+         */
+        private void updateTextChangeAlarm(long currentTimeMillis) {
+            long nextChange = mAmbient ? mComplicationWorker.getNextChangeTime(true) : Long.MAX_VALUE;
+            long nextMinute = (currentTimeMillis / DateUtils.MINUTE_IN_MILLIS + 1) * DateUtils.MINUTE_IN_MILLIS;
+            if (nextChange < nextMinute) {
+                mAlarmManager.setExact(AlarmManager.RTC_WAKEUP, nextChange, mTextChangeIntent);
+            } else {
+                mAlarmManager.cancel(mTextChangeIntent);
             }
         }
 
-        private void drawSmallImageComplication(Canvas canvas, ComplicationData data,
-                                                float centerX, float centerY, int id) {
+        private void drawComplicationBorder(Canvas canvas, ComplicationData data,
+                                            float centerX, float centerY) {
+            if (!mConfig.hasComplicationBorder()) {
+                return;
+            }
             float radius = mCenterX / 4;
-
-            mComplicationTapBoxes[id] = new RectF(centerX - radius,
-                    centerY - radius,
-                    centerX + radius,
-                    centerY + radius);
-
-            Icon smallImage = data.getSmallImage();
-            if (smallImage != null && !(mAmbient && mBurnInProtection)) {
-                Drawable drawable = smallImage.loadDrawable(getApplicationContext());
-                if (drawable != null) {
-                    if (mAmbient && !mAmbientColor) {
-                        drawable = convertToGrayscale(drawable);
-                    }
-                    int size = Math.round(radius - mComplicationCirclePaint.getStrokeWidth() / 2);
-                    if (data.getImageStyle() == ComplicationData.IMAGE_STYLE_ICON) {
-                        size = (int) Math.round(0.15 * mCenterX);
-                    } else {
-                        drawable = convertToCircle(drawable);
+            switch (data.getType()) {
+                case ComplicationData.TYPE_SHORT_TEXT:
+                    canvas.drawCircle(centerX, centerY, radius, mPalette.getComplicationCirclePaint());
+                    break;
+                case ComplicationData.TYPE_ICON:
+                    Icon icon = mAmbient && mBurnInProtection ? data.getBurnInProtectionIcon() : data.getSmallImage();
+                    if (icon != null) {
+                        canvas.drawCircle(centerX, centerY, radius, mPalette.getComplicationCirclePaint());
                     }
-                    drawable.setBounds(Math.round(centerX - size), Math.round(centerY - size), Math.round(centerX + size), Math.round(centerY + size));
-                    drawable.draw(canvas);
-                    if (mComplicationBorder) {
-                        canvas.drawCircle(centerX, centerY, radius, mComplicationCirclePaint);
+                    break;
+                case ComplicationData.TYPE_SMALL_IMAGE:
+                    if (data.getSmallImage() != null && !(mAmbient && mBurnInProtection)) {
+                        canvas.drawCircle(centerX, centerY, radius, mPalette.getComplicationCirclePaint());
                     }
-                }
+                    break;
             }
         }
 
         private Drawable convertToGrayscale(Drawable drawable) {
-            ColorMatrix matrix = new ColorMatrix();
-            matrix.setSaturation(0);
-
-            ColorMatrixColorFilter filter = new ColorMatrixColorFilter(matrix);
-
-            drawable.setColorFilter(filter);
+            drawable.setColorFilter(IconCache.GRAYSCALE_FILTER);
 
             return drawable;
         }
@@ -1033,221 +1195,113 @@ public class WatchFaceService extends CanvasWatchFaceService {
             return bitmap;
         }
 
-        private Drawable convertToCircle(Drawable drawable) {
-            Bitmap bitmap = drawableToBitmap(drawable);
-            Bitmap output = Bitmap.createBitmap(bitmap.getWidth(),
-                    bitmap.getHeight(), Bitmap.Config.ARGB_8888);
-            Canvas canvas = new Canvas(output);
-            final Paint paint = new Paint();
-            final Rect rect = new Rect(0, 0, bitmap.getWidth(),
-                    bitmap.getHeight());
-
-            paint.setAntiAlias(true);
-            canvas.drawARGB(0, 0, 0, 0);
-            canvas.drawCircle(bitmap.getWidth() / 2,
-                    bitmap.getHeight() / 2, bitmap.getWidth() / 2, paint);
-            paint.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.SRC_IN));
-            canvas.drawBitmap(bitmap, rect, rect, paint);
-            return new BitmapDrawable(output);
-        }
-
-        private Drawable convertToBlur(Drawable drawable, float radius) {
-            Bitmap bitmap = drawableToBitmap(drawable);
-            int width = Math.round(bitmap.getWidth() * 0.5f);
-            int height = Math.round(bitmap.getHeight() * 0.5f);
-
-            Bitmap input = Bitmap.createScaledBitmap(bitmap, width, height, false);
-            Bitmap output = Bitmap.createBitmap(input);
-
-            RenderScript rs = RenderScript.create(getApplicationContext());
-            ScriptIntrinsicBlur theIntrinsic = ScriptIntrinsicBlur.create(rs, Element.U8_4(rs));
-            Allocation tmpIn = Allocation.createFromBitmap(rs, input);
-            Allocation tmpOut = Allocation.createFromBitmap(rs, output);
-            theIntrinsic.setRadius(radius);
-            theIntrinsic.setInput(tmpIn);
-            theIntrinsic.forEach(tmpOut);
-            tmpOut.copyTo(output);
-
-            return new BitmapDrawable(output);
-        }
-
         private void drawTicks(Canvas canvas) {
-            if (mIsRound) {
-                float outerRadius = mCenterX - 6;
-                for (int tickIndex = 0; tickIndex < 60; tickIndex++) {
-                    Paint tickPaint = mTickPaint;
-                    float innerRadius = mCenterX - (0.10f * mCenterX);
-                    if (tickIndex % 5 == 0) {
-                        tickPaint = mHourTickPaint;
-                        innerRadius -= (0.05f * mCenterX);
-                    }
-                    float tickRot = (float) (tickIndex * Math.PI * 2 / 60);
-                    float innerX = (float) Math.sin(tickRot) * innerRadius;
-                    float innerY = (float) -Math.cos(tickRot) * innerRadius;
-                    float outerX = (float) Math.sin(tickRot) * outerRadius;
-                    float outerY = (float) -Math.cos(tickRot) * outerRadius;
-                    canvas.drawLine(mCenterX + innerX, mCenterY + innerY,
-                            mCenterX + outerX, mCenterY + outerY, tickPaint);
-                }
-
-                outerRadius--;
-                float innerRadius = mCenterX / 2;
-                float minuteRot = (float) Math.PI / 30 * mCalendar.get(Calendar.MINUTE);
-                float innerX = (float) Math.sin(minuteRot) * innerRadius;
-                float innerY = (float) -Math.cos(minuteRot) * innerRadius;
-                float outerX = (float) Math.sin(minuteRot) * outerRadius;
-                float outerY = (float) -Math.cos(minuteRot) * outerRadius;
-                canvas.drawLine(mCenterX + innerX, mCenterY + innerY,
-                        mCenterX + outerX, mCenterY + outerY, mMinutePaint);
-            } else {
-                for (int x = 0; x < 4; x++) {
-                    canvas.save();
-                    canvas.rotate(x * 90, mCenterX, mCenterY);
-                    for (int tickIndex = 0; tickIndex < 15; tickIndex++) {
-                        Paint tickPaint = mTickPaint;
-                        float magic = (float) (-1 / Math.tan(-0.25 * Math.PI + tickIndex * Math.PI / 30 + Math.PI / 60));
-                        float outerY = mCenterY - 6;
-                        float outerX = outerY / magic;
-                        float innerY = mCenterY - (0.10f * mCenterX);
-                        if ((tickIndex + 3) % 5 == 0) {
-                            tickPaint = mHourTickPaint;
-                            innerY -= 0.05f * mCenterX;
-                        }
-                        float innerX = innerY / magic;
-                        canvas.drawLine(innerX + mCenterX, mCenterY + innerY, outerX + mCenterX, mCenterY + outerY, tickPaint);
-                    }
-                    canvas.restore();
-                }
-
-                int min = mCalendar.get(Calendar.MINUTE) + 7;
-                canvas.save();
-                canvas.rotate((float) Math.floor(min / 15) * 90 - 180, mCenterX, mCenterY);
-                float magic = (float) (-1 / Math.tan(-0.25 * Math.PI + (min % 15) * Math.PI / 30 + Math.PI / 60));
-                float outerY = mCenterY - 7;
-                float outerX = outerY / magic;
-                float innerY = mCenterY / 2;
-                float innerX = innerY / magic;
-                canvas.drawLine(innerX + mCenterX, mCenterY + innerY, outerX + mCenterX, mCenterY + outerY, mMinutePaint);
-                canvas.restore();
-            }
+            mFaceRenderer.drawTicks(mCanvasSurface.setCanvas(canvas), mPalette.getHourTickPaint(), mPalette.getTickPaint());
         }
 
         private void drawSeconds(Canvas canvas) {
-            int milliseconds = mCalendar.get(Calendar.SECOND) * 1000 + mCalendar.get(Calendar.MILLISECOND);
-            float percentage = milliseconds / 60000f;
-            Path path = new Path();
-            if (mIsRound) {
-                path.moveTo(mCenterX - 2, 1);
-                path.lineTo(mCenterX + 2, 1);
-                path.arcTo(1, 1, mCenterX * 2 - 1, mCenterY * 2 - 1, -90, 359.99f, false);
-            } else {
-                path.moveTo(mCenterX - 2, 1);
-                path.lineTo(mCenterX * 2 - 1, 1);
-                path.lineTo(mCenterX * 2 - 1, mCenterY * 2 - 1);
-                path.lineTo(1, mCenterY * 2 - 1);
-                path.lineTo(1, 1);
-                path.lineTo(mCenterX, 1);
+            int milliseconds = mWallClock.getSecond() * 1000;
+            if (mRenderTier != TIER_TICKING) {
+                milliseconds += mWallClock.getMillisecond();
             }
-            PathMeasure measure = new PathMeasure(path, false);
-            float length = measure.getLength();
-            Path partialPath = new Path();
-            measure.getSegment(0, length * percentage, partialPath, true);
-            canvas.drawPath(partialPath, mSecondPaint);
+            mFaceRenderer.drawSeconds(mCanvasSurface.setCanvas(canvas), milliseconds / 60000f, mPalette.getSecondPaint());
         }
 
         private void drawMinutes(Canvas canvas) {
-            if (mIsRound) {
-                float outerRadius = mCenterX - 7;
-                float innerRadius = mCenterX / 2;
-                float minuteRot = (float) Math.PI / 30 * mCalendar.get(Calendar.MINUTE);
-                float innerX = (float) Math.sin(minuteRot) * innerRadius;
-                float innerY = (float) -Math.cos(minuteRot) * innerRadius;
-                float outerX = (float) Math.sin(minuteRot) * outerRadius;
-                float outerY = (float) -Math.cos(minuteRot) * outerRadius;
-                canvas.drawLine(mCenterX + innerX, mCenterY + innerY,
-                        mCenterX + outerX, mCenterY + outerY, mMinutePaint);
-            } else {
-                int min = mCalendar.get(Calendar.MINUTE) + 7;
-                canvas.save();
-                canvas.rotate((float) Math.floor(min / 15) * 90 - 180, mCenterX, mCenterY);
-                float magic = (float) (-1 / Math.tan(-0.25 * Math.PI + (min % 15) * Math.PI / 30 + Math.PI / 60));
-                float outerY = mCenterY - 7;
-                float outerX = outerY / magic;
-                float innerY = mCenterY / 2;
-                float innerX = innerY / magic;
-                canvas.drawLine(innerX + mCenterX, mCenterY + innerY, outerX + mCenterX, mCenterY + outerY, mMinutePaint);
-                canvas.restore();
-            }
+            mFaceRenderer.drawMinuteHand(mCanvasSurface.setCanvas(canvas), mWallClock.getMinute(), mPalette.getMinutePaint());
         }
 
-        private void drawDigitalogTime(Canvas canvas) {
-            String hourString;
-            if ((DateFormat.is24HourFormat(WatchFaceService.this) && !mTimeFormat24 && !mTimeFormat12) || mTimeFormat24) {
-                hourString = String.valueOf(mCalendar.get(Calendar.HOUR_OF_DAY));
+        /**
+         * Fills {@link #mHourChars} with the hour in the configured 12/24 hour format and returns
+         * the number of digits.
+         */
+        private int formatHour() {
+            int hour;
+            if ((mIs24HourFormat && !mConfig.isTimeFormat24() && !mConfig.isTimeFormat12()) || mConfig.isTimeFormat24()) {
+                hour = mWallClock.getHourOfDay();
             } else {
-                int hour = mCalendar.get(Calendar.HOUR);
+                hour = mWallClock.getHour();
                 if (hour == 0) {
                     hour = 12;
                 }
-                hourString = String.valueOf(hour);
             }
-            mHourTextPaint.setTextAlign(Paint.Align.CENTER);
-            canvas.drawText(hourString, mCenterX, mCenterY - (mHourTextPaint.descent() + mHourTextPaint.ascent()) / 2, mHourTextPaint);
+            if (hour < 10) {
+                mHourChars[0] = DIGIT_ONES[hour];
+                return 1;
+            }
+            mHourChars[0] = DIGIT_TENS[hour];
+            mHourChars[1] = DIGIT_ONES[hour];
+            return 2;
+        }
+
+        private void formatTwoDigits(char[] chars, int value) {
+            chars[0] = DIGIT_TENS[value];
+            chars[1] = DIGIT_ONES[value];
+        }
+
+        /**
+         * Writes a non-negative number right aligned into {@code chars} and returns the index of
+         * its first digit.
+         */
+        private int formatNumber(char[] chars, int value) {
+            int index = chars.length;
+            do {
+                chars[--index] = DIGIT_ONES[value % 10];
+                value /= 10;
+            } while (value > 0 && index > 0);
+            return index;
+        }
+
+        private void drawDigitalogTime(Canvas canvas) {
+            int hourLength = formatHour();
+            Paint hourTextPaint = mPalette.getHourTextPaint();
+            getDigitAtlas(ATLAS_HOUR, hourTextPaint).draw(canvas, mHourChars, 0, hourLength, mCenterX, mCenterY - (hourTextPaint.descent() + hourTextPaint.ascent()) / 2, hourTextPaint);
 
             drawMinutes(canvas);
         }
 
         private void drawDigitalTime(Canvas canvas) {
-            String hourString;
-            if ((DateFormat.is24HourFormat(WatchFaceService.this) && !mTimeFormat24 && !mTimeFormat12) || mTimeFormat24) {
-                hourString = String.valueOf(mCalendar.get(Calendar.HOUR_OF_DAY));
-            } else {
-                int hour = mCalendar.get(Calendar.HOUR);
-                if (hour == 0) {
-                    hour = 12;
-                }
-                hourString = String.valueOf(hour);
-            }
-            String minuteString = String.valueOf(mCalendar.get(Calendar.MINUTE));
-            if (minuteString.length() == 1) {
-                minuteString = "0" + minuteString;
-            }
-            String secondString = String.valueOf(mCalendar.get(Calendar.SECOND));
-            if (secondString.length() == 1) {
-                secondString = "0" + secondString;
-            }
+            int hourLength = formatHour();
+            formatTwoDigits(mMinuteChars, mWallClock.getMinute());
 
-            mHourTextPaint.setTextAlign(Paint.Align.RIGHT);
-            mMinuteTextPaint.setTextAlign(Paint.Align.LEFT);
-            mSecondTextPaint.setTextAlign(Paint.Align.LEFT);
-            canvas.drawText(hourString,
+            Paint hourTextPaint = mPalette.getHourTextRightPaint();
+            Paint minuteTextPaint = mPalette.getMinuteTextPaint();
+            getDigitAtlas(ATLAS_HOUR, hourTextPaint).draw(canvas, mHourChars, 0, hourLength,
                     mCenterX + mCenterX / 12,
-                    mCenterY - (mHourTextPaint.descent() + mHourTextPaint.ascent()) / 2,
-                    mHourTextPaint);
-            canvas.drawText(minuteString,
+                    mCenterY - (hourTextPaint.descent() + hourTextPaint.ascent()) / 2,
+                    hourTextPaint);
+            getDigitAtlas(ATLAS_MINUTE, minuteTextPaint).draw(canvas, mMinuteChars, 0, 2,
                     mCenterX + mCenterX / 9,
-                    mCenterY - (mMinuteTextPaint.descent() + mMinuteTextPaint.ascent()) +
-                            (mHourTextPaint.descent() + mHourTextPaint.ascent()) / 2,
-                    mMinuteTextPaint);
-            if (!mAmbient) {
-                canvas.drawText(secondString,
-                        mCenterX + mCenterX / 9,
-                        mCenterY - (mHourTextPaint.descent() + mHourTextPaint.ascent()) / 2,
-                        mSecondTextPaint);
-            }
+                    mCenterY - (minuteTextPaint.descent() + minuteTextPaint.ascent()) +
+                            (hourTextPaint.descent() + hourTextPaint.ascent()) / 2,
+                    minuteTextPaint);
+        }
+
+        private void drawDigitalSeconds(Canvas canvas) {
+            formatTwoDigits(mSecondChars, mWallClock.getSecond());
+
+            Paint hourTextPaint = mPalette.getHourTextPaint();
+            Paint secondTextPaint = mPalette.getSecondTextPaint();
+            getDigitAtlas(ATLAS_SECOND, secondTextPaint).draw(canvas, mSecondChars, 0, 2,
+                    mCenterX + mCenterX / 9,
+                    mCenterY - (hourTextPaint.descent() + hourTextPaint.ascent()) / 2,
+                    secondTextPaint);
         }
 
         private void drawNotificationCount(Canvas canvas) {
             int count = 0;
-            if (mNotificationIndicatorUnread) {
+            if (mConfig.isNotificationIndicatorUnread()) {
                 count = mUnreadNotificationCount;
-            } else if (mNotificationIndicatorAll) {
+            } else if (mConfig.isNotificationIndicatorAll()) {
                 count = mNotificationCount;
             }
             if (count > 0) {
-                canvas.drawRect(0, mCenterY * 2 - 100, mCenterX * 2, mCenterY * 2, mNotificationBackgroundPaint);
-                canvas.drawCircle(mCenterX, mCenterY * 2 - 6 - mCenterX * 0.1f, mCenterX * 0.08f, mNotificationCirclePaint);
-                canvas.drawText(String.valueOf(mNotificationCount), mCenterX, mCenterY * 2 - 6 - mCenterX * 0.1f - (mNotificationTextPaint.descent() + mNotificationTextPaint.ascent()) / 2, mNotificationTextPaint);
+                if (!mLowBitAmbientRendering) {
+                    canvas.drawRect(0, mCenterY * 2 - 100, mCenterX * 2, mCenterY * 2, mPalette.getNotificationBackgroundPaint());
+                }
+                canvas.drawCircle(mCenterX, mCenterY * 2 - 6 - mCenterX * 0.1f, mCenterX * 0.08f, mPalette.getNotificationCirclePaint());
+                int start = formatNumber(mNotificationCountChars, mNotificationCount);
+                canvas.drawText(mNotificationCountChars, start, mNotificationCountChars.length - start, mCenterX, mCenterY * 2 - 6 - mCenterX * 0.1f - (mPalette.getNotificationTextPaint().descent() + mPalette.getNotificationTextPaint().ascent()) / 2, mPalette.getNotificationTextPaint());
             }
         }
 
@@ -1258,12 +1312,15 @@ public class WatchFaceService extends CanvasWatchFaceService {
             if (visible) {
                 registerReceiver();
                 /* Update time zone in case it changed while we weren't visible. */
-                mCalendar.setTimeZone(TimeZone.getDefault());
-                getSettingValues();
-                updateStyle();
+                mWallClock.setTimeZone(TimeZone.getDefault());
+                mIs24HourFormat = DateFormat.is24HourFormat(WatchFaceService.this);
+                updateRenderTier();
+                invalidateMinuteLayer();
                 invalidate();
             } else {
                 unregisterReceiver();
+                Log.d(TAG, "Scheduled frames: " + mScheduledFrames + ", skipped frames: " + mSkippedFrames +
+                        ", late frames: " + mLateFrames + ", dropped frames: " + mDroppedFrames);
             }
 
             /* Check and trigger whether or not timer should be running (only in active mode). */
@@ -1276,7 +1333,21 @@ public class WatchFaceService extends CanvasWatchFaceService {
             }
             mRegisteredTimeZoneReceiver = true;
             IntentFilter filter = new IntentFilter(Intent.ACTION_TIMEZONE_CHANGED);
+            filter.addAction(Intent.ACTION_TIME_CHANGED);
             WatchFaceService.this.registerReceiver(mTimeZoneReceiver, filter);
+            WatchFaceService.this.registerReceiver(mTextChangeReceiver,
+                    new IntentFilter(ACTION_COMPLICATION_TEXT_CHANGE));
+            getContentResolver().registerContentObserver(
+                    Settings.System.getUriFor(Settings.System.TIME_12_24), false, mTimeFormatObserver);
+
+            IntentFilter powerFilter = new IntentFilter(Intent.ACTION_BATTERY_CHANGED);
+            powerFilter.addAction(Intent.ACTION_POWER_CONNECTED);
+            powerFilter.addAction(Intent.ACTION_POWER_DISCONNECTED);
+            powerFilter.addAction(PowerManager.ACTION_POWER_SAVE_MODE_CHANGED);
+            Intent batteryStatus = WatchFaceService.this.registerReceiver(mPowerReceiver, powerFilter);
+            if (batteryStatus != null) {
+                updatePowerState(batteryStatus);
+            }
         }
 
         private void unregisterReceiver() {
@@ -1285,15 +1356,74 @@ public class WatchFaceService extends CanvasWatchFaceService {
             }
             mRegisteredTimeZoneReceiver = false;
             WatchFaceService.this.unregisterReceiver(mTimeZoneReceiver);
+            WatchFaceService.this.unregisterReceiver(mTextChangeReceiver);
+            mAlarmManager.cancel(mTextChangeIntent);
+            getContentResolver().unregisterContentObserver(mTimeFormatObserver);
+            WatchFaceService.this.unregisterReceiver(mPowerReceiver);
+        }
+
+        private void updatePowerState(Intent intent) {
+            if (Intent.ACTION_BATTERY_CHANGED.equals(intent.getAction())) {
+                int level = intent.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+                int scale = intent.getIntExtra(BatteryManager.EXTRA_SCALE, -1);
+                if (level >= 0 && scale > 0) {
+                    mBatteryLevel = level * 100 / scale;
+                }
+                mCharging = intent.getIntExtra(BatteryManager.EXTRA_PLUGGED, 0) != 0;
+            } else if (Intent.ACTION_POWER_CONNECTED.equals(intent.getAction())) {
+                mCharging = true;
+            } else if (Intent.ACTION_POWER_DISCONNECTED.equals(intent.getAction())) {
+                mCharging = false;
+            }
+            mPowerSaveMode = ((PowerManager) getSystemService(POWER_SERVICE)).isPowerSaveMode();
+            updateRenderTier();
         }
 
         /**
-         * Starts/stops the {@link #mUpdateTimeHandler} timer based on the state of the watch face.
+         * Picks the rendering tier from the battery level, charging and power save state, capped
+         * by the user's setting. Reschedules the timer when the tier changed.
+         */
+        private void updateRenderTier() {
+            int tier;
+            if (mCharging) {
+                tier = TIER_SMOOTH;
+            } else if (mBatteryLevel > 50) {
+                tier = TIER_SMOOTH;
+            } else if (mBatteryLevel > 30) {
+                tier = TIER_10_FPS;
+            } else if (mBatteryLevel > 15) {
+                tier = TIER_TICKING;
+            } else {
+                tier = TIER_SECONDS_OFF;
+            }
+            if (mPowerSaveMode && !mCharging) {
+                tier = Math.max(tier, TIER_TICKING);
+            }
+            tier = Math.max(tier, mConfig.getFrameRateCap());
+            if (tier != mRenderTier) {
+                mRenderTier = tier;
+                invalidate();
+                updateTimer();
+            }
+        }
+
+        /**
+         * Starts/stops the {@link #mUpdateTimeHandler} timer, or the Choreographer frame callbacks
+         * when vsync pacing is enabled, based on the state of the watch face.
          */
         private void updateTimer() {
             mUpdateTimeHandler.removeMessages(MSG_UPDATE_TIME);
+            mChoreographer.removeFrameCallback(mFrameCallback);
             if (shouldTimerBeRunning()) {
-                mUpdateTimeHandler.sendEmptyMessage(MSG_UPDATE_TIME);
+                if (mConfig.isVsyncPacing()) {
+                    mLastFrameTimeNanos = 0;
+                    mFrameCallbackDelayNanos = 0;
+                    mMonotonicAnchorNanos = 0;
+                    mNextFrameTime = 0;
+                    mChoreographer.postFrameCallback(mFrameCallback);
+                } else {
+                    mUpdateTimeHandler.sendEmptyMessage(MSG_UPDATE_TIME);
+                }
             }
         }
 
@@ -1312,10 +1442,84 @@ public class WatchFaceService extends CanvasWatchFaceService {
             invalidate();
             if (shouldTimerBeRunning()) {
                 long timeMs = System.currentTimeMillis();
-                long delayMs = INTERACTIVE_UPDATE_RATE_MS
-                        - (timeMs % INTERACTIVE_UPDATE_RATE_MS);
+                long delayMs = getNextFrameTime(timeMs) - timeMs;
+                mScheduledFrames++;
+                mSkippedFrames += Math.max(0, delayMs / INTERACTIVE_UPDATE_RATE_MS - 1);
                 mUpdateTimeHandler.sendEmptyMessageDelayed(MSG_UPDATE_TIME, delayMs);
             }
         }
+
+        /**
+         * Handles a Choreographer frame in vsync pacing mode. Counts late and dropped frames and
+         * starts a frame at the frame time when something visible changed since the last one.
+         * The next callback is posted for the vsync before the next change, so the CPU isn't
+         * woken every vsync while nothing changes.
+         */
+        private void handleFrame(long frameTimeNanos) {
+            if (!shouldTimerBeRunning()) {
+                return;
+            }
+            if (System.nanoTime() - frameTimeNanos > mFrameIntervalNanos) {
+                mLateFrames++;
+            }
+            if (mLastFrameTimeNanos != 0) {
+                long missed = (frameTimeNanos - mLastFrameTimeNanos - mFrameCallbackDelayNanos +
+                        mFrameIntervalNanos / 2) / mFrameIntervalNanos - 1;
+                if (missed > 0) {
+                    mDroppedFrames += missed;
+                }
+            }
+            mLastFrameTimeNanos = frameTimeNanos;
+
+            long now = getPacedTimeMillis(frameTimeNanos);
+            if (now >= mNextFrameTime) {
+                mPacedTimeMillis = now;
+                invalidate();
+                mNextFrameTime = getNextFrameTime(now);
+                mScheduledFrames++;
+                mSkippedFrames += Math.max(0, (mNextFrameTime - now) / INTERACTIVE_UPDATE_RATE_MS - 1);
+            }
+            long delayMs = Math.max(0, mNextFrameTime - now - mFrameIntervalNanos / 1000000);
+            mFrameCallbackDelayNanos = delayMs * 1000000;
+            mChoreographer.postFrameCallbackDelayed(mFrameCallback, delayMs);
+        }
+
+        /**
+         * Converts a frame time on the monotonic clock to wall time, re-anchoring to the wall
+         * clock once a second so adjustments of the wall clock don't make the sweep stutter.
+         */
+        private long getPacedTimeMillis(long frameTimeNanos) {
+            long elapsedMillis = (frameTimeNanos - mMonotonicAnchorNanos) / 1000000;
+            if (mMonotonicAnchorNanos == 0 || elapsedMillis < 0 || elapsedMillis >= DateUtils.SECOND_IN_MILLIS) {
+                mWallAnchorMillis = System.currentTimeMillis() - (System.nanoTime() - frameTimeNanos) / 1000000;
+                mMonotonicAnchorNanos = frameTimeNanos;
+                elapsedMillis = 0;
+            }
+            return mWallAnchorMillis + elapsedMillis;
+        }
+
+        /**
+         * Returns the earliest time after {@code now} at which a frame would change pixels: the
+         * next minute for the minute layer, the next second for the digital seconds and the
+         * ticking seconds ring, or the next pixel step of the smooth seconds ring.
+         * Pixel steps are never closer together than the update rate of the rendering tier.
+         */
+        private long getNextFrameTime(long now) {
+            long nextSecond = (now / DateUtils.SECOND_IN_MILLIS + 1) * DateUtils.SECOND_IN_MILLIS;
+            long next = (now / DateUtils.MINUTE_IN_MILLIS + 1) * DateUtils.MINUTE_IN_MILLIS;
+            boolean seconds = mRenderTier != TIER_SECONDS_OFF;
+            if ((mConfig.isStyleDigital() && seconds) || (!mConfig.isStyleDigital() && mRenderTier == TIER_TICKING)) {
+                next = Math.min(next, nextSecond);
+            }
+            if (!mConfig.isStyleDigital() && seconds && mRenderTier != TIER_TICKING && mSecondsPathLength > 0) {
+                long updateRateMs = mRenderTier == TIER_10_FPS ? TIER_10_FPS_UPDATE_RATE_MS : INTERACTIVE_UPDATE_RATE_MS;
+                long milliseconds = now % DateUtils.MINUTE_IN_MILLIS;
+                double pixel = Math.floor(mSecondsPathLength * milliseconds / DateUtils.MINUTE_IN_MILLIS) + 1;
+                long nextPixel = now - milliseconds +
+                        (long) Math.ceil(pixel * DateUtils.MINUTE_IN_MILLIS / mSecondsPathLength);
+                next = Math.min(next, Math.max(nextPixel, now + updateRateMs));
+            }
+            return Math.max(next, now + 1);
+        }
     }
 }
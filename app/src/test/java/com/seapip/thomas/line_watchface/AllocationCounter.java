@@ -0,0 +1,80 @@
+package com.seapip.thomas.line_watchface;
+
+import com.google.monitoring.runtime.instrumentation.AllocationRecorder;
+import com.google.monitoring.runtime.instrumentation.Sampler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Counts the allocations the watch face makes on the current thread between {@link #start()}
+ * and {@link #stop()}. Needs the java-allocation-instrumenter agent, see app/build.gradle.
+ * Allocations made by Robolectric's shadows stand in for native framework code and are left
+ * out, as are those of linking the invokedynamic call sites its instrumentation adds. Only
+ * allocations with watch face code on the stack count.
+ */
+class AllocationCounter implements Sampler {
+    private static final String APP_PACKAGE = "com.seapip.thomas.line_watchface.";
+    private static final int MAX_REPORTED = 20;
+
+    private final Thread mThread = Thread.currentThread();
+    private final List<String> mAllocations = new ArrayList<>();
+    private int mCount;
+    private volatile boolean mRecording;
+
+    void start() {
+        mCount = 0;
+        mAllocations.clear();
+        AllocationRecorder.addSampler(this);
+        mRecording = true;
+    }
+
+    void stop() {
+        mRecording = false;
+        AllocationRecorder.removeSampler(this);
+    }
+
+    int getCount() {
+        return mCount;
+    }
+
+    /**
+     * Describes the first allocations with the watch face frame that made them.
+     */
+    String describe() {
+        StringBuilder builder = new StringBuilder(mCount + " allocations:");
+        for (String allocation : mAllocations) {
+            builder.append("\n  ").append(allocation);
+        }
+        return builder.toString();
+    }
+
+    @Override
+    public void sampleAllocation(int count, String desc, Object newObj, long size) {
+        if (!mRecording || Thread.currentThread() != mThread) {
+            return;
+        }
+        /*
+         * Walks from the allocation towards the test, the test runner below the watch face
+         * frames is Robolectric too.
+         */
+        StackTraceElement appFrame = null;
+        for (StackTraceElement element : new Throwable().getStackTrace()) {
+            String className = element.getClassName();
+            if (className.startsWith("org.robolectric.") || className.startsWith("java.lang.invoke.")) {
+                return;
+            }
+            if (className.startsWith(APP_PACKAGE) && !className.equals(AllocationCounter.class.getName())) {
+                appFrame = element;
+                break;
+            }
+        }
+        if (appFrame == null) {
+            return;
+        }
+        mCount++;
+        if (mAllocations.size() < MAX_REPORTED) {
+            mAllocations.add(desc + " at " + appFrame);
+        }
+    }
+}
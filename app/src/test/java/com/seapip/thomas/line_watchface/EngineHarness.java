@@ -0,0 +1,224 @@
+package com.seapip.thomas.line_watchface;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.PixelFormat;
+import android.graphics.Rect;
+import android.os.Bundle;
+import android.os.Handler;
+import android.preference.PreferenceManager;
+import android.service.wallpaper.WallpaperService;
+import android.support.wearable.complications.ComplicationData;
+import android.support.wearable.watchface.CanvasWatchFaceService;
+import android.view.Surface;
+import android.view.SurfaceHolder;
+
+import org.robolectric.Robolectric;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.Shadows;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+
+/**
+ * Drives the watch face engine the way the system does, without a wallpaper connection: it is
+ * created for a surface, made visible, gets complication data and draws frames into an
+ * offscreen canvas.
+ */
+class EngineHarness {
+    static final int SIZE = 320;
+    private static final long PREPARE_TIMEOUT_MS = 5000;
+
+    private final CanvasWatchFaceService.Engine mEngine;
+    private final ShadowLooper mWorkerLooper;
+    private final SurfaceHolder mHolder = new OffscreenSurfaceHolder();
+    private final Canvas mCanvas;
+    private final Rect mBounds = new Rect(0, 0, SIZE, SIZE);
+    private final ComplicationData[] mData = new ComplicationData[WatchFaceService.COMPLICATION_IDS.length];
+
+    /**
+     * @param style the settings_style preference: 0 digitalog, 1 digital, 2 analog
+     */
+    EngineHarness(String style, boolean round) {
+        PreferenceManager.getDefaultSharedPreferences(RuntimeEnvironment.application).edit()
+                .putString("settings_style", style)
+                .commit();
+        WatchFaceService service = Robolectric.setupService(WatchFaceService.class);
+        mEngine = (CanvasWatchFaceService.Engine) service.onCreateEngine();
+        mEngine.onCreate(mHolder);
+        Object worker = getField(mEngine, "mComplicationWorker");
+        mWorkerLooper = Shadows.shadowOf(((Handler) getField(worker, "mHandler")).getLooper());
+        setField("mIsRound", round);
+        mEngine.onPropertiesChanged(new Bundle());
+        mEngine.onSurfaceChanged(mHolder, PixelFormat.RGBA_8888, SIZE, SIZE);
+        setVisible();
+        mCanvas = new Canvas(Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888));
+    }
+
+    void setComplicationData(int id, ComplicationData data) {
+        mData[id] = data;
+        mEngine.onComplicationDataUpdate(id, data);
+    }
+
+    void setAmbientMode(boolean ambient) {
+        mEngine.onAmbientModeChanged(ambient);
+    }
+
+    /**
+     * Runs the worker and the main looper until every dial with data is prepared for the
+     * current ambient state.
+     */
+    void awaitComplications() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + PREPARE_TIMEOUT_MS;
+        while (!isPrepared()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("Complications not prepared within " + PREPARE_TIMEOUT_MS + "ms");
+            }
+            runLoopers();
+            Thread.sleep(1);
+        }
+    }
+
+    /**
+     * Gives asynchronous icon loads and the resulting prepares time to finish.
+     */
+    void settle(long millis) throws InterruptedException {
+        long end = System.currentTimeMillis() + millis;
+        while (System.currentTimeMillis() < end) {
+            runLoopers();
+            Thread.sleep(1);
+        }
+    }
+
+    /**
+     * Runs the tasks that are due on the worker and the main looper. Robolectric doesn't run
+     * the loopers of background threads, so the worker's tasks run on the test thread.
+     */
+    private void runLoopers() {
+        Robolectric.flushBackgroundThreadScheduler();
+        mWorkerLooper.idle();
+        ShadowLooper.runUiThreadTasks();
+    }
+
+    void drawFrame() {
+        mEngine.onDraw(mCanvas, mBounds);
+    }
+
+    void destroy() {
+        mEngine.onDestroy();
+    }
+
+    private boolean isPrepared() {
+        try {
+            Method method = mEngine.getClass().getDeclaredMethod("getComplicationSnapshot", int.class, long.class);
+            method.setAccessible(true);
+            long now = System.currentTimeMillis();
+            for (int id = 0; id < mData.length; id++) {
+                if (mData[id] != null && method.invoke(mEngine, id, now) == null) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * Reports the engine visible like the wallpaper connection does: {@link
+     * WallpaperService.Engine#isVisible()} is true before onVisibilityChanged is called, so the
+     * timers and the ahead-of-time ambient frame run as on a device.
+     */
+    private void setVisible() {
+        try {
+            Field field = WallpaperService.Engine.class.getDeclaredField("mReportedVisible");
+            field.setAccessible(true);
+            field.setBoolean(mEngine, true);
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(e);
+        }
+        mEngine.onVisibilityChanged(true);
+    }
+
+    private static Object getField(Object object, String name) {
+        try {
+            Field field = object.getClass().getDeclaredField(name);
+            field.setAccessible(true);
+            return field.get(object);
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private void setField(String name, boolean value) {
+        try {
+            Field field = mEngine.getClass().getDeclaredField(name);
+            field.setAccessible(true);
+            field.setBoolean(mEngine, value);
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static class OffscreenSurfaceHolder implements SurfaceHolder {
+        private final Rect mFrame = new Rect(0, 0, SIZE, SIZE);
+
+        @Override
+        public void addCallback(Callback callback) {
+        }
+
+        @Override
+        public void removeCallback(Callback callback) {
+        }
+
+        @Override
+        public boolean isCreating() {
+            return false;
+        }
+
+        @Override
+        public void setType(int type) {
+        }
+
+        @Override
+        public void setFixedSize(int width, int height) {
+        }
+
+        @Override
+        public void setSizeFromLayout() {
+        }
+
+        @Override
+        public void setFormat(int format) {
+        }
+
+        @Override
+        public void setKeepScreenOn(boolean screenOn) {
+        }
+
+        @Override
+        public Canvas lockCanvas() {
+            return null;
+        }
+
+        @Override
+        public Canvas lockCanvas(Rect dirty) {
+            return null;
+        }
+
+        @Override
+        public void unlockCanvasAndPost(Canvas canvas) {
+        }
+
+        @Override
+        public Rect getSurfaceFrame() {
+            return mFrame;
+        }
+
+        @Override
+        public Surface getSurface() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.seapip.thomas.line_watchface;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.graphics.drawable.Icon;
+import android.util.LruCache;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Renders complication icons for hours of simulated frames, with providers that keep sending
+ * the same icon and providers that send a new photo every minute, and checks that the rendered
+ * icons are memoized and the memory they hold stays flat.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class IconCacheSoakTest {
+    private static final int MAX_BYTES = 256 * 1024;
+    private static final int SIZE = 48;
+    /* One frame a second. */
+    private static final int FRAMES_PER_HOUR = 60 * 60;
+    private static final int HOURS = 4;
+    private static final int FRAMES_PER_NEW_PHOTO = 60;
+    private static final long LOAD_TIMEOUT_MS = 5000;
+
+    private IconCache mCache;
+    private int mLoads;
+
+    @Before
+    public void setUp() {
+        mCache = new IconCache(RuntimeEnvironment.application, MAX_BYTES, new IconCache.Listener() {
+            @Override
+            public void onIconLoaded() {
+                mLoads++;
+            }
+        });
+    }
+
+    @Test
+    public void memoryStaysFlatOverHours() throws Exception {
+        Icon weather = createIcon(Color.BLUE);
+        Icon battery = createIcon(Color.GREEN);
+        Icon photo = null;
+        Icon contact = null;
+        Set<Bitmap> rendered = Collections.newSetFromMap(new IdentityHashMap<Bitmap, Boolean>());
+        List<Integer> liveAtHour = new ArrayList<>();
+
+        for (int frame = 0; frame < HOURS * FRAMES_PER_HOUR; frame++) {
+            if (frame % FRAMES_PER_NEW_PHOTO == 0) {
+                photo = createIcon(Color.RED);
+                contact = createIcon(Color.YELLOW);
+            }
+            rendered.add(get(weather, IconCache.CIRCLE));
+            rendered.add(get(battery, IconCache.GRAYSCALE));
+            rendered.add(get(photo, IconCache.CIRCLE | IconCache.GRAYSCALE));
+            rendered.add(get(contact, 0));
+
+            if ((frame + 1) % FRAMES_PER_HOUR == 0) {
+                assertTrue(getCacheBytes("mBitmaps") <= MAX_BYTES / 2);
+                assertTrue(getCacheBytes("mDrawables") <= MAX_BYTES / 2);
+                liveAtHour.add(countLive(rendered));
+            }
+        }
+
+        /* Four icons a frame, but only the new photos are rendered again. */
+        assertEquals(2 + 2 * HOURS * FRAMES_PER_HOUR / FRAMES_PER_NEW_PHOTO, rendered.size());
+        assertEquals(2 + 2 * HOURS * FRAMES_PER_HOUR / FRAMES_PER_NEW_PHOTO, mLoads);
+        for (int hour = 1; hour < liveAtHour.size(); hour++) {
+            assertEquals("Live icons after hour " + (hour + 1), liveAtHour.get(0), liveAtHour.get(hour));
+        }
+        assertTrue(liveAtHour.get(0) <= MAX_BYTES / 2 / (SIZE * SIZE * 4));
+    }
+
+    @Test
+    public void clearReleasesEverything() throws Exception {
+        Bitmap bitmap = get(createIcon(Color.BLUE), IconCache.CIRCLE);
+        mCache.clear();
+        assertTrue(bitmap.isRecycled());
+        assertEquals(0, getCacheBytes("mBitmaps"));
+        assertEquals(0, getCacheBytes("mDrawables"));
+    }
+
+    /**
+     * Returns the rendered icon, waiting for it to load the first time it is requested.
+     */
+    private Bitmap get(Icon icon, int flags) throws InterruptedException {
+        Bitmap bitmap = mCache.get(icon, SIZE, SIZE, IconCache.NO_TINT, flags);
+        long deadline = System.currentTimeMillis() + LOAD_TIMEOUT_MS;
+        while (bitmap == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+            Robolectric.flushBackgroundThreadScheduler();
+            ShadowLooper.runUiThreadTasks();
+            bitmap = mCache.get(icon, SIZE, SIZE, IconCache.NO_TINT, flags);
+        }
+        assertNotNull("Icon not loaded within " + LOAD_TIMEOUT_MS + "ms", bitmap);
+        assertSame(bitmap, mCache.get(icon, SIZE, SIZE, IconCache.NO_TINT, flags));
+        return bitmap;
+    }
+
+    private int getCacheBytes(String name) throws ReflectiveOperationException {
+        Field field = IconCache.class.getDeclaredField(name);
+        field.setAccessible(true);
+        return ((LruCache<?, ?>) field.get(mCache)).size();
+    }
+
+    private static int countLive(Set<Bitmap> bitmaps) {
+        int live = 0;
+        for (Bitmap bitmap : bitmaps) {
+            if (!bitmap.isRecycled()) {
+                live++;
+            }
+        }
+        return live;
+    }
+
+    private static Icon createIcon(int color) {
+        Bitmap bitmap = Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888);
+        bitmap.eraseColor(color);
+        return Icon.createWithBitmap(bitmap);
+    }
+}
@@ -0,0 +1,44 @@
+package com.seapip.thomas.line_watchface;
+
+import android.graphics.Bitmap;
+import android.graphics.drawable.Icon;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Checks that the {@link Icon#toString()} format the icon cache identifies resource and uri
+ * icons by still holds, so equal icons in new complication data share their rendering.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class IconCacheTest {
+    @Test
+    public void resourceIconsAreIdentifiedByResource() {
+        String source = IconCache.describeSource(Icon.createWithResource("android", android.R.drawable.ic_menu_add));
+        assertNotNull(source);
+        assertEquals(source, IconCache.describeSource(Icon.createWithResource("android", android.R.drawable.ic_menu_add)));
+        assertNotEquals(source, IconCache.describeSource(Icon.createWithResource("android", android.R.drawable.ic_menu_delete)));
+    }
+
+    @Test
+    public void uriIconsAreIdentifiedByUri() {
+        String source = IconCache.describeSource(Icon.createWithContentUri("content://com.example.provider/icon/1"));
+        assertNotNull(source);
+        assertEquals(source, IconCache.describeSource(Icon.createWithContentUri("content://com.example.provider/icon/1")));
+        assertNotEquals(source, IconCache.describeSource(Icon.createWithContentUri("content://com.example.provider/icon/2")));
+    }
+
+    @Test
+    public void bitmapIconsAreIdentifiedByInstance() {
+        Bitmap bitmap = Bitmap.createBitmap(8, 8, Bitmap.Config.ARGB_8888);
+        assertNull(IconCache.describeSource(Icon.createWithBitmap(bitmap)));
+    }
+}
@@ -0,0 +1,134 @@
+package com.seapip.thomas.line_watchface;
+
+import android.graphics.Bitmap;
+import android.graphics.drawable.Icon;
+import android.support.wearable.complications.ComplicationData;
+import android.support.wearable.complications.ComplicationText;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.ParameterizedRobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Steady-state frames must not allocate, for every style, shape, ambient state and
+ * complication type. Run with {@code ./gradlew :app:testDebugUnitTest}.
+ */
+@RunWith(ParameterizedRobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class OnDrawAllocationTest {
+    private static final int WARM_UP_FRAMES = 20;
+    private static final int FRAMES = 500;
+    private static final String[] STYLES = {"0", "1", "2"};
+    private static final String MIX_TEXT = "text";
+    private static final String MIX_IMAGES = "images";
+
+    private final String mStyle;
+    private final boolean mRound;
+    private final boolean mAmbient;
+    private final String mMix;
+    private EngineHarness mHarness;
+
+    public OnDrawAllocationTest(String style, boolean round, boolean ambient, String mix) {
+        mStyle = style;
+        mRound = round;
+        mAmbient = ambient;
+        mMix = mix;
+    }
+
+    @ParameterizedRobolectricTestRunner.Parameters(name = "style {0}, round {1}, ambient {2}, {3}")
+    public static Collection<Object[]> parameters() {
+        List<Object[]> parameters = new ArrayList<>();
+        for (String style : STYLES) {
+            for (boolean round : new boolean[]{true, false}) {
+                for (boolean ambient : new boolean[]{false, true}) {
+                    parameters.add(new Object[]{style, round, ambient, MIX_TEXT});
+                    parameters.add(new Object[]{style, round, ambient, MIX_IMAGES});
+                }
+            }
+        }
+        return parameters;
+    }
+
+    @After
+    public void tearDown() {
+        if (mHarness != null) {
+            mHarness.destroy();
+        }
+    }
+
+    @Test
+    public void steadyStateFramesDoNotAllocate() throws InterruptedException {
+        mHarness = new EngineHarness(mStyle, mRound);
+        if (MIX_TEXT.equals(mMix)) {
+            setTextComplications(mHarness);
+        } else {
+            setImageComplications(mHarness);
+        }
+        mHarness.setAmbientMode(mAmbient);
+        mHarness.awaitComplications();
+        mHarness.settle(100);
+        for (int i = 0; i < WARM_UP_FRAMES; i++) {
+            mHarness.drawFrame();
+        }
+
+        AllocationCounter allocations = new AllocationCounter();
+        allocations.start();
+        for (int i = 0; i < FRAMES; i++) {
+            mHarness.drawFrame();
+        }
+        allocations.stop();
+        assertEquals(allocations.describe(), 0, allocations.getCount());
+    }
+
+    static Icon createIcon() {
+        return Icon.createWithBitmap(Bitmap.createBitmap(48, 48, Bitmap.Config.ARGB_8888));
+    }
+
+    static void setTextComplications(EngineHarness harness) {
+        harness.setComplicationData(0, new ComplicationData.Builder(ComplicationData.TYPE_SHORT_TEXT)
+                .setShortText(ComplicationText.plainText("12"))
+                .setShortTitle(ComplicationText.plainText("min"))
+                .build());
+        harness.setComplicationData(1, new ComplicationData.Builder(ComplicationData.TYPE_SHORT_TEXT)
+                .setShortText(ComplicationText.plainText("74%"))
+                .setIcon(createIcon())
+                .build());
+        harness.setComplicationData(2, new ComplicationData.Builder(ComplicationData.TYPE_RANGED_VALUE)
+                .setMinValue(0)
+                .setMaxValue(10000)
+                .setValue(6250)
+                .build());
+        harness.setComplicationData(3, new ComplicationData.Builder(ComplicationData.TYPE_LONG_TEXT)
+                .setLongText(ComplicationText.plainText("Meeting with a rather long title"))
+                .setLongTitle(ComplicationText.plainText("14:30"))
+                .build());
+    }
+
+    static void setImageComplications(EngineHarness harness) {
+        /* Icon dials draw the small image, the builder requires the icon. */
+        harness.setComplicationData(0, new ComplicationData.Builder(ComplicationData.TYPE_ICON)
+                .setIcon(createIcon())
+                .setSmallImage(createIcon())
+                .build());
+        harness.setComplicationData(1, new ComplicationData.Builder(ComplicationData.TYPE_SMALL_IMAGE)
+                .setSmallImage(createIcon())
+                .setImageStyle(ComplicationData.IMAGE_STYLE_PHOTO)
+                .build());
+        harness.setComplicationData(2, new ComplicationData.Builder(ComplicationData.TYPE_SMALL_IMAGE)
+                .setSmallImage(createIcon())
+                .setImageStyle(ComplicationData.IMAGE_STYLE_ICON)
+                .build());
+        harness.setComplicationData(3, new ComplicationData.Builder(ComplicationData.TYPE_LONG_TEXT)
+                .setLongText(ComplicationText.plainText("Jane Doe"))
+                .setSmallImage(createIcon())
+                .build());
+    }
+}
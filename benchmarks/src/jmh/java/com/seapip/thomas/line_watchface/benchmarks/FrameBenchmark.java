@@ -0,0 +1,144 @@
+package com.seapip.thomas.line_watchface.benchmarks;
+
+import com.seapip.thomas.line_watchface.core.DrawSurface;
+import com.seapip.thomas.line_watchface.core.FaceGeometry;
+import com.seapip.thomas.line_watchface.core.FaceRenderer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Frame cost of the face geometry per style, screen shape and mix of dials, drawn to a surface
+ * that discards or records the calls. A frame draws what the watch face draws in its static
+ * and minute layers: the ticks, the dial borders and placement, the minute hand and the
+ * seconds ring.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FrameBenchmark {
+    /* Dial contents, by the kind of geometry they need. */
+    private static final int DIAL_NONE = 0;
+    private static final int DIAL_SHORT_TEXT = 1;
+    private static final int DIAL_RANGE = 2;
+    private static final int DIAL_LONG_TEXT = 3;
+
+    private static final Object HOUR_TICK_PAINT = new Object();
+    private static final Object TICK_PAINT = new Object();
+    private static final Object MINUTE_PAINT = new Object();
+    private static final Object BORDER_PAINT = new Object();
+    private static final Object VALUE_PAINT = new Object();
+    private static final Object SECONDS_PAINT = new Object();
+
+    @Param({"digitalog", "digital", "analog"})
+    public String style;
+
+    @Param({"round", "square"})
+    public String shape;
+
+    /* Contents of the top, left, right and bottom dial. */
+    @Param({"none", "short", "range", "long", "mixed"})
+    public String complications;
+
+    @Param({"noop", "recording"})
+    public String surface;
+
+    /* Half the size of a typical 454 pixel screen. */
+    private final float mCenterX = 227;
+    private final float mCenterY = 227;
+    private final FaceRenderer<Object> mFaceRenderer = new FaceRenderer<>();
+    private final float[] mPoint = new float[3];
+    private final float[] mLongTextSpace = new float[3];
+    private final NoOpSurface mNoOpSurface = new NoOpSurface();
+    private final RecordingSurface mRecordingSurface = new RecordingSurface();
+    private DrawSurface<Object> mSurface;
+    private boolean mRound;
+    private boolean mDigital;
+    private boolean mTicks;
+    private int[] mDials;
+    private int mMinute;
+
+    @Setup
+    public void setUp() {
+        mRound = shape.equals("round");
+        mDigital = style.equals("digital");
+        mTicks = !mDigital;
+        mFaceRenderer.setGeometry(mRound, mCenterX, mCenterY);
+        mSurface = surface.equals("noop") ? mNoOpSurface : mRecordingSurface;
+        switch (complications) {
+            case "short":
+                mDials = new int[]{DIAL_SHORT_TEXT, DIAL_SHORT_TEXT, DIAL_SHORT_TEXT, DIAL_SHORT_TEXT};
+                break;
+            case "range":
+                mDials = new int[]{DIAL_NONE, DIAL_NONE, DIAL_RANGE, DIAL_NONE};
+                break;
+            case "long":
+                mDials = new int[]{DIAL_NONE, DIAL_NONE, DIAL_NONE, DIAL_LONG_TEXT};
+                break;
+            case "mixed":
+                mDials = new int[]{DIAL_SHORT_TEXT, DIAL_SHORT_TEXT, DIAL_RANGE, DIAL_LONG_TEXT};
+                break;
+            default:
+                mDials = new int[]{DIAL_NONE, DIAL_NONE, DIAL_NONE, DIAL_NONE};
+                break;
+        }
+    }
+
+    @Benchmark
+    public float frame() {
+        mRecordingSurface.reset();
+        mMinute = (mMinute + 1) % 60;
+
+        if (mTicks) {
+            mFaceRenderer.drawTicks(mSurface, HOUR_TICK_PAINT, TICK_PAINT);
+        }
+        drawDials();
+        if (!mDigital) {
+            mFaceRenderer.drawMinuteHand(mSurface, mMinute, MINUTE_PAINT);
+            mFaceRenderer.drawSeconds(mSurface, mMinute / 60f, SECONDS_PAINT);
+        }
+        return mNoOpSurface.takeSum() + mRecordingSurface.getCount();
+    }
+
+    private void drawDials() {
+        boolean bottomDialUsed = mDials[FaceGeometry.DIAL_BOTTOM] != DIAL_NONE;
+        float radius = mCenterX / 4;
+        for (int dial = 0; dial < mDials.length; dial++) {
+            FaceGeometry.getDialCenter(dial, mDigital, mCenterX, mCenterY, mPoint);
+            switch (mDials[dial]) {
+                case DIAL_SHORT_TEXT:
+                    mSurface.drawCircle(mPoint[0], mPoint[1], radius, BORDER_PAINT);
+                    break;
+                case DIAL_RANGE:
+                    FaceGeometry.getRangeDial(bottomDialUsed, mDigital, mRound, mCenterX, mCenterY, mPoint);
+                    mFaceRenderer.drawRangeArc(mSurface, mPoint[0], mPoint[1], mPoint[2],
+                            0.05f * mCenterX, 0.15f * mCenterX, mMinute / 60f, BORDER_PAINT, VALUE_PAINT);
+                    break;
+                case DIAL_LONG_TEXT:
+                    FaceGeometry.getLongTextSpace(mRound, mCenterX, mCenterY, mLongTextSpace);
+                    float maxWidth = mLongTextSpace[0];
+                    float height = mLongTextSpace[1];
+                    float centerY = mPoint[1] + mLongTextSpace[2];
+                    float width = Math.min(maxWidth, FaceGeometry.getLongTextWidth(
+                            mCenterX, mCenterX / 2, FaceGeometry.LONG_TEXT_IMAGE_ICON, height, maxWidth));
+                    mFaceRenderer.drawLongTextBorder(mSurface, mPoint[0] - width / 2, centerY - height / 2,
+                            mPoint[0] + width / 2, centerY + height / 2, BORDER_PAINT);
+                    break;
+            }
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.seapip.thomas.line_watchface.benchmarks;
+
+import com.seapip.thomas.line_watchface.core.DrawSurface;
+
+/**
+ * Discards the drawing calls, only summing the coordinates so computing them isn't optimized
+ * away. Measures the cost of the geometry alone.
+ */
+class NoOpSurface implements DrawSurface<Object> {
+    private float mSum;
+
+    /**
+     * Returns the sum of all coordinates drawn since the last call and resets it.
+     */
+    float takeSum() {
+        float sum = mSum;
+        mSum = 0;
+        return sum;
+    }
+
+    @Override
+    public void drawLine(float startX, float startY, float stopX, float stopY, Object paint) {
+        mSum += startX + startY + stopX + stopY;
+    }
+
+    @Override
+    public void drawLines(float[] points, int offset, int count, Object paint) {
+        for (int i = offset; i < offset + count; i++) {
+            mSum += points[i];
+        }
+    }
+
+    @Override
+    public void drawCircle(float centerX, float centerY, float radius, Object paint) {
+        mSum += centerX + centerY + radius;
+    }
+
+    @Override
+    public void drawArc(float left, float top, float right, float bottom, float startAngle,
+                        float sweepAngle, Object paint) {
+        mSum += left + top + right + bottom + startAngle + sweepAngle;
+    }
+}
@@ -0,0 +1,79 @@
+package com.seapip.thomas.line_watchface.benchmarks;
+
+import com.seapip.thomas.line_watchface.core.DrawSurface;
+
+import java.util.Arrays;
+
+/**
+ * Records the drawing calls of a frame into a flat array of operations, roughly what a display
+ * list costs to build.
+ */
+class RecordingSurface implements DrawSurface<Object> {
+    private static final int OP_LINE = 1;
+    private static final int OP_CIRCLE = 2;
+    private static final int OP_ARC = 3;
+
+    private float[] mOps = new float[256];
+    private int mSize;
+    private int mCount;
+
+    void reset() {
+        mSize = 0;
+        mCount = 0;
+    }
+
+    /**
+     * Returns the number of operations recorded since the last reset.
+     */
+    int getCount() {
+        return mCount;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (mSize + extra > mOps.length) {
+            mOps = Arrays.copyOf(mOps, Math.max(mOps.length * 2, mSize + extra));
+        }
+    }
+
+    @Override
+    public void drawLine(float startX, float startY, float stopX, float stopY, Object paint) {
+        ensureCapacity(5);
+        mOps[mSize++] = OP_LINE;
+        mOps[mSize++] = startX;
+        mOps[mSize++] = startY;
+        mOps[mSize++] = stopX;
+        mOps[mSize++] = stopY;
+        mCount++;
+    }
+
+    @Override
+    public void drawLines(float[] points, int offset, int count, Object paint) {
+        for (int i = offset; i + 3 < offset + count; i += 4) {
+            drawLine(points[i], points[i + 1], points[i + 2], points[i + 3], paint);
+        }
+    }
+
+    @Override
+    public void drawCircle(float centerX, float centerY, float radius, Object paint) {
+        ensureCapacity(4);
+        mOps[mSize++] = OP_CIRCLE;
+        mOps[mSize++] = centerX;
+        mOps[mSize++] = centerY;
+        mOps[mSize++] = radius;
+        mCount++;
+    }
+
+    @Override
+    public void drawArc(float left, float top, float right, float bottom, float startAngle,
+                        float sweepAngle, Object paint) {
+        ensureCapacity(7);
+        mOps[mSize++] = OP_ARC;
+        mOps[mSize++] = left;
+        mOps[mSize++] = top;
+        mOps[mSize++] = right;
+        mOps[mSize++] = bottom;
+        mOps[mSize++] = startAngle;
+        mOps[mSize++] = sweepAngle;
+        mCount++;
+    }
+}
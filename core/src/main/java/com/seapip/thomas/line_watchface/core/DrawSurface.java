@@ -0,0 +1,26 @@
+package com.seapip.thomas.line_watchface.core;
+
+/**
+ * The drawing calls the face geometry is rendered with, a subset of
+ * {@code android.graphics.Canvas} so the app can adapt a canvas while benchmarks draw to a
+ * recording or no-op surface on the JVM.
+ *
+ * @param <P> the paint type of the surface
+ */
+public interface DrawSurface<P> {
+    void drawLine(float startX, float startY, float stopX, float stopY, P paint);
+
+    /**
+     * Draws {@code count / 4} lines from {@code points}, four values per line, like
+     * {@code Canvas.drawLines(float[], int, int, Paint)}.
+     */
+    void drawLines(float[] points, int offset, int count, P paint);
+
+    void drawCircle(float centerX, float centerY, float radius, P paint);
+
+    /**
+     * Draws the outline of an arc of the oval in the bounds, without lines to its center.
+     */
+    void drawArc(float left, float top, float right, float bottom, float startAngle,
+                 float sweepAngle, P paint);
+}
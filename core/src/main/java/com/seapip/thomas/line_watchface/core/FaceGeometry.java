@@ -0,0 +1,275 @@
+package com.seapip.thomas.line_watchface.core;
+
+/**
+ * Layout math of the watch face for a surface with the given center: tick and minute hand end
+ * points, the seconds ring length, where the dials go and how wide a long text dial gets.
+ * Square faces project the ticks and minute hand onto the edges of the screen.
+ */
+public final class FaceGeometry {
+    /* Dials, numbered like the complication ids of the watch face. */
+    public static final int DIAL_TOP = 0;
+    public static final int DIAL_LEFT = 1;
+    public static final int DIAL_RIGHT = 2;
+    public static final int DIAL_BOTTOM = 3;
+
+    /* What is shown in front of the text of a long text dial. */
+    public static final int LONG_TEXT_IMAGE_NONE = 0;
+    public static final int LONG_TEXT_IMAGE_SMALL_IMAGE = 1;
+    public static final int LONG_TEXT_IMAGE_ICON = 2;
+
+    /* A ranged value dial is an arc of 270 degrees from the top, with marks between 10 steps. */
+    public static final int RANGE_STEPS = 10;
+    public static final float RANGE_SWEEP = 270;
+
+    /* Corners of the square seconds ring, including its start and end. */
+    public static final int SQUARE_SECONDS_POINTS = 6;
+
+    private FaceGeometry() {
+    }
+
+    /**
+     * Writes the inner and outer end of tick {@code index} (0 to 59) as x, y, x, y to
+     * {@code out} from {@code offset}.
+     *
+     * @return whether it is an hour tick
+     */
+    public static boolean getTick(boolean round, float centerX, float centerY, int index,
+                                  float[] out, int offset) {
+        if (round) {
+            float outerRadius = centerX - 6;
+            float innerRadius = centerX - (0.10f * centerX);
+            boolean hour = index % 5 == 0;
+            if (hour) {
+                innerRadius -= (0.05f * centerX);
+            }
+            float tickRot = (float) (index * Math.PI * 2 / 60);
+            float sin = (float) Math.sin(tickRot);
+            float cos = (float) -Math.cos(tickRot);
+            out[offset] = centerX + sin * innerRadius;
+            out[offset + 1] = centerY + cos * innerRadius;
+            out[offset + 2] = centerX + sin * outerRadius;
+            out[offset + 3] = centerY + cos * outerRadius;
+            return hour;
+        }
+
+        /* Each side of a square face has 15 ticks, the sides are quarter turns of each other. */
+        int tickIndex = index % 15;
+        float magic = (float) (-1 / Math.tan(-0.25 * Math.PI + tickIndex * Math.PI / 30 + Math.PI / 60));
+        float outerY = centerY - 6;
+        float innerY = centerY - (0.10f * centerX);
+        boolean hour = (tickIndex + 3) % 5 == 0;
+        if (hour) {
+            innerY -= 0.05f * centerX;
+        }
+        rotate(innerY / magic, innerY, index / 15, centerX, centerY, out, offset);
+        rotate(outerY / magic, outerY, index / 15, centerX, centerY, out, offset + 2);
+        return hour;
+    }
+
+    /**
+     * Writes the inner and outer end of the minute hand as x, y, x, y to {@code out} from
+     * {@code offset}.
+     */
+    public static void getMinuteHand(boolean round, float centerX, float centerY, int minute,
+                                     float[] out, int offset) {
+        if (round) {
+            float outerRadius = centerX - 7;
+            float innerRadius = centerX / 2;
+            float minuteRot = (float) Math.PI / 30 * minute;
+            float sin = (float) Math.sin(minuteRot);
+            float cos = (float) -Math.cos(minuteRot);
+            out[offset] = centerX + sin * innerRadius;
+            out[offset + 1] = centerY + cos * innerRadius;
+            out[offset + 2] = centerX + sin * outerRadius;
+            out[offset + 3] = centerY + cos * outerRadius;
+            return;
+        }
+
+        /* Same projection as the ticks, turned half way as the hand starts at the top. */
+        int min = minute + 7;
+        float magic = (float) (-1 / Math.tan(-0.25 * Math.PI + (min % 15) * Math.PI / 30 + Math.PI / 60));
+        float outerY = centerY - 7;
+        float innerY = centerY / 2;
+        int quarterTurns = (min / 15 + 2) % 4;
+        rotate(innerY / magic, innerY, quarterTurns, centerX, centerY, out, offset);
+        rotate(outerY / magic, outerY, quarterTurns, centerX, centerY, out, offset + 2);
+    }
+
+    /**
+     * Rotates a point relative to the center clockwise by quarter turns, like
+     * {@code Canvas.rotate(quarterTurns * 90, centerX, centerY)} would.
+     */
+    private static void rotate(float x, float y, int quarterTurns, float centerX, float centerY,
+                               float[] out, int offset) {
+        float rotatedX;
+        float rotatedY;
+        switch (quarterTurns) {
+            case 1:
+                rotatedX = -y;
+                rotatedY = x;
+                break;
+            case 2:
+                rotatedX = -x;
+                rotatedY = -y;
+                break;
+            case 3:
+                rotatedX = y;
+                rotatedY = -x;
+                break;
+            default:
+                rotatedX = x;
+                rotatedY = y;
+                break;
+        }
+        out[offset] = centerX + rotatedX;
+        out[offset + 1] = centerY + rotatedY;
+    }
+
+    /**
+     * Length of the seconds ring, it starts with a short line at the top and runs along the edge
+     * of the screen one pixel in.
+     */
+    public static float getSecondsPathLength(boolean round, float centerX, float centerY) {
+        if (round) {
+            return 6 + (float) (2 * Math.PI * (centerX - 1) * 359.99 / 360);
+        }
+        return 4 * centerX + 4 * centerY - 6;
+    }
+
+    /**
+     * Writes the corners of the square seconds ring as x, y pairs to {@code out}. It starts just
+     * left of the top center, runs clockwise along the edges one pixel in and ends at the top
+     * center, {@link #getSecondsPathLength} long.
+     */
+    public static void getSquareSecondsPath(float centerX, float centerY, float[] out) {
+        float right = centerX * 2 - 1;
+        float bottom = centerY * 2 - 1;
+        out[0] = centerX - 2;
+        out[1] = 1;
+        out[2] = right;
+        out[3] = 1;
+        out[4] = right;
+        out[5] = bottom;
+        out[6] = 1;
+        out[7] = bottom;
+        out[8] = 1;
+        out[9] = 1;
+        out[10] = centerX;
+        out[11] = 1;
+    }
+
+    /**
+     * Writes the center of a dial to {@code out}. The digital style moves the dials outwards to
+     * make room for the time.
+     */
+    public static void getDialCenter(int dial, boolean digital, float centerX, float centerY,
+                                     float[] out) {
+        float offset = digital ? centerX * 0.13f : 0;
+        switch (dial) {
+            case DIAL_TOP:
+                out[0] = centerX;
+                out[1] = centerY / 2 - offset;
+                break;
+            case DIAL_LEFT:
+                out[0] = centerX / 2 - offset;
+                out[1] = centerY;
+                break;
+            case DIAL_BOTTOM:
+                out[0] = centerX;
+                out[1] = centerY * 1.5f + offset;
+                break;
+            case DIAL_RIGHT:
+                out[0] = centerX * 1.5f + offset;
+                out[1] = centerY;
+                break;
+        }
+    }
+
+    /**
+     * Writes the center x, center y and radius of a ranged value dial to {@code out}. If the
+     * bottom dial is used then only the right space is available instead of the bottom right
+     * space.
+     */
+    public static void getRangeDial(boolean bottomDialUsed, boolean digital, boolean round,
+                                    float centerX, float centerY, float[] out) {
+        float offset = digital ? centerX * 0.1f : 0;
+        if (bottomDialUsed) {
+            out[0] = centerX * 1.5f + offset;
+            out[1] = centerY;
+            out[2] = centerX / 4;
+        } else {
+            out[0] = centerX + centerX / 4 + 10 + offset * 1.3f;
+            out[1] = centerY + centerY / 4 + 10 + offset * 0.3f;
+            out[2] = centerX / 2;
+            if (!round) {
+                out[2] *= 1.2f;
+            }
+            out[2] -= 20;
+        }
+    }
+
+    /**
+     * Writes the inner and outer end of step mark {@code index} (1 to {@link #RANGE_STEPS} - 1)
+     * of a ranged value dial as x, y, x, y to {@code out} from {@code offset}. The marks are
+     * inside the arc, 4 pixels from it.
+     */
+    public static void getRangeStep(float centerX, float centerY, float radius, float stepLength,
+                                    int index, float[] out, int offset) {
+        float stepRot = (float) (index * Math.PI * 3 / 2 / RANGE_STEPS);
+        float sin = (float) Math.sin(stepRot);
+        float cos = (float) -Math.cos(stepRot);
+        out[offset] = centerX + sin * (radius - 4 - stepLength);
+        out[offset + 1] = centerY + cos * (radius - 4 - stepLength);
+        out[offset + 2] = centerX + sin * (radius - 4);
+        out[offset + 3] = centerY + cos * (radius - 4);
+    }
+
+    /**
+     * Writes the outer and inner end of the needle that ends the value arc of a ranged value
+     * dial at {@code progress} (0 to 1) as x, y, x, y to {@code out} from {@code offset}.
+     */
+    public static void getRangeNeedle(float centerX, float centerY, float radius, float needleLength,
+                                      float progress, float[] out, int offset) {
+        float valueRot = (float) (progress * Math.PI * 3 / 2);
+        float sin = (float) Math.sin(valueRot);
+        float cos = (float) -Math.cos(valueRot);
+        out[offset] = centerX + sin * radius;
+        out[offset + 1] = centerY + cos * radius;
+        out[offset + 2] = centerX + sin * (radius - needleLength);
+        out[offset + 3] = centerY + cos * (radius - needleLength);
+    }
+
+    /**
+     * Writes the maximum width and the height of a long text dial and how far its center is
+     * below the center of the dial it replaces to {@code out}. Square faces have room for a
+     * wider dial.
+     */
+    public static void getLongTextSpace(boolean round, float centerX, float centerY, float[] out) {
+        out[0] = round ? centerX * 1.2f : centerX * 1.5f;
+        out[1] = centerY / 4;
+        out[2] = round ? 0 : centerY / 16;
+    }
+
+    /**
+     * Returns the width a long text dial needs for its text and title, which are negative when
+     * absent, and image. It is wider than {@code maxWidth} when the strings have to be ellipsized.
+     */
+    public static float getLongTextWidth(float textWidth, float titleWidth, int image,
+                                         float height, float maxWidth) {
+        float width = maxWidth;
+        textWidth = textWidth < 0 ? 0 : textWidth + height / 2;
+        titleWidth = titleWidth < 0 ? 0 : titleWidth + height / 2;
+        if (textWidth > titleWidth && textWidth > 0) {
+            width = textWidth;
+        }
+        if (textWidth < titleWidth && titleWidth > 0) {
+            width = titleWidth;
+        }
+        if (image == LONG_TEXT_IMAGE_SMALL_IMAGE) {
+            width += height + 8;
+        } else if (image == LONG_TEXT_IMAGE_ICON) {
+            width += height;
+        }
+        return width;
+    }
+}
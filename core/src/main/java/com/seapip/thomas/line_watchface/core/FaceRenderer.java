@@ -0,0 +1,136 @@
+package com.seapip.thomas.line_watchface.core;
+
+/**
+ * Draws the geometry of the face that doesn't depend on text or images to a
+ * {@link DrawSurface}: the ticks, the minute hand, the seconds ring, the arc of a ranged value
+ * dial and the border of a long text dial. All end points of the face are computed once per
+ * surface size and shape, the ticks are drawn with one call per paint.
+ *
+ * @param <P> the paint type of the surfaces drawn to
+ */
+public class FaceRenderer<P> {
+    /* Line end points as x, y, x, y. */
+    private final float[] mHourTicks = new float[12 * 4];
+    private final float[] mTicks = new float[48 * 4];
+    private final float[] mMinuteHands = new float[60 * 4];
+    private final float[] mSecondsPath = new float[FaceGeometry.SQUARE_SECONDS_POINTS * 2];
+    /* The elapsed part of the square seconds ring, one line per side. */
+    private final float[] mSecondsLines = new float[(FaceGeometry.SQUARE_SECONDS_POINTS - 1) * 4];
+    private final float[] mRangeSteps = new float[(FaceGeometry.RANGE_STEPS - 1) * 4];
+    private final float[] mRangeNeedle = new float[4];
+    private boolean mValid;
+    private boolean mRound;
+    private float mCenterX;
+    private float mCenterY;
+
+    /**
+     * Sets the shape and center of the surfaces drawn to.
+     */
+    public void setGeometry(boolean round, float centerX, float centerY) {
+        if (mValid && round == mRound && centerX == mCenterX && centerY == mCenterY) {
+            return;
+        }
+        mValid = true;
+        mRound = round;
+        mCenterX = centerX;
+        mCenterY = centerY;
+
+        int hourOffset = 0;
+        int offset = 0;
+        float[] line = new float[4];
+        for (int i = 0; i < 60; i++) {
+            if (FaceGeometry.getTick(round, centerX, centerY, i, line, 0)) {
+                System.arraycopy(line, 0, mHourTicks, hourOffset, 4);
+                hourOffset += 4;
+            } else {
+                System.arraycopy(line, 0, mTicks, offset, 4);
+                offset += 4;
+            }
+        }
+        for (int minute = 0; minute < 60; minute++) {
+            FaceGeometry.getMinuteHand(round, centerX, centerY, minute, mMinuteHands, minute * 4);
+        }
+        FaceGeometry.getSquareSecondsPath(centerX, centerY, mSecondsPath);
+    }
+
+    public void drawTicks(DrawSurface<P> surface, P hourTickPaint, P tickPaint) {
+        surface.drawLines(mTicks, 0, mTicks.length, tickPaint);
+        surface.drawLines(mHourTicks, 0, mHourTicks.length, hourTickPaint);
+    }
+
+    public void drawMinuteHand(DrawSurface<P> surface, int minute, P paint) {
+        int offset = minute * 4;
+        surface.drawLine(mMinuteHands[offset], mMinuteHands[offset + 1],
+                mMinuteHands[offset + 2], mMinuteHands[offset + 3], paint);
+    }
+
+    /**
+     * Draws the elapsed part of the seconds ring, {@code progress} runs from 0 to 1 over a
+     * minute. Round faces draw an arc, square faces follow the edges around from the top.
+     */
+    public void drawSeconds(DrawSurface<P> surface, float progress, P paint) {
+        if (mRound) {
+            surface.drawArc(1, 1, mCenterX * 2 - 1, mCenterY * 2 - 1, -90, 360 * progress, paint);
+            return;
+        }
+        float remaining = FaceGeometry.getSecondsPathLength(false, mCenterX, mCenterY) * progress;
+        int count = 0;
+        for (int i = 0; i + 3 < mSecondsPath.length && remaining > 0; i += 2) {
+            float startX = mSecondsPath[i];
+            float startY = mSecondsPath[i + 1];
+            float endX = mSecondsPath[i + 2];
+            float endY = mSecondsPath[i + 3];
+            /* The sides are horizontal or vertical. */
+            float length = Math.abs(endX - startX) + Math.abs(endY - startY);
+            if (length <= 0) {
+                continue;
+            }
+            float fraction = Math.min(1, remaining / length);
+            mSecondsLines[count++] = startX;
+            mSecondsLines[count++] = startY;
+            mSecondsLines[count++] = startX + (endX - startX) * fraction;
+            mSecondsLines[count++] = startY + (endY - startY) * fraction;
+            remaining -= length;
+        }
+        surface.drawLines(mSecondsLines, 0, count, paint);
+    }
+
+    /**
+     * Draws the arc of a ranged value dial: the track with its step marks from the value on and
+     * the value arc ending in a needle. {@code progress} is the value from 0 to 1. It doesn't
+     * depend on the geometry of the face.
+     *
+     * @param stepLength   length of the step marks on the track
+     * @param needleLength length of the line that ends the value arc
+     */
+    public void drawRangeArc(DrawSurface<P> surface, float centerX, float centerY, float radius,
+                             float stepLength, float needleLength, float progress,
+                             P trackPaint, P valuePaint) {
+        float left = centerX - radius;
+        float top = centerY - radius;
+        float right = centerX + radius;
+        float bottom = centerY + radius;
+        float valueSweep = progress * FaceGeometry.RANGE_SWEEP;
+        surface.drawArc(left, top, right, bottom, -90 + valueSweep, FaceGeometry.RANGE_SWEEP - valueSweep, trackPaint);
+        for (int index = 1; index < FaceGeometry.RANGE_STEPS; index++) {
+            FaceGeometry.getRangeStep(centerX, centerY, radius, stepLength, index, mRangeSteps, (index - 1) * 4);
+        }
+        surface.drawLines(mRangeSteps, 0, mRangeSteps.length, trackPaint);
+        surface.drawArc(left, top, right, bottom, -90, valueSweep, valuePaint);
+        FaceGeometry.getRangeNeedle(centerX, centerY, radius, needleLength, progress, mRangeNeedle, 0);
+        surface.drawLine(mRangeNeedle[0], mRangeNeedle[1], mRangeNeedle[2], mRangeNeedle[3], valuePaint);
+    }
+
+    /**
+     * Draws the pill shaped border of a long text dial with the given bounds. It doesn't depend
+     * on the geometry of the face.
+     */
+    public void drawLongTextBorder(DrawSurface<P> surface, float left, float top, float right,
+                                   float bottom, P paint) {
+        float height = bottom - top;
+        surface.drawLine(left + height / 2, top, right - height / 2, top, paint);
+        surface.drawArc(right - height, top, right, bottom, -90, 180, paint);
+        surface.drawLine(right - height / 2, bottom, left + height / 2, bottom, paint);
+        surface.drawArc(left, top, left + height, bottom, 90, 180, paint);
+    }
+}
@@ -0,0 +1,116 @@
+package com.seapip.thomas.line_watchface.core;
+
+import java.util.TimeZone;
+
+/**
+ * Wall clock fields for a time zone, derived with integer arithmetic from a cached UTC offset
+ * instead of recomputing every {@link java.util.Calendar} field. The offset is cached until the
+ * next transition of the time zone (at most a day), {@link #invalidate()} drops it when the time
+ * was set.
+ */
+public class WallClock {
+    private static final long SECOND_IN_MILLIS = 1000;
+    private static final long DAY_IN_MILLIS = 24 * 60 * 60 * SECOND_IN_MILLIS;
+
+    private TimeZone mTimeZone;
+    private int mOffset;
+    private long mOffsetValidFrom;
+    private long mOffsetValidUntil;
+
+    private int mHourOfDay;
+    private int mMinute;
+    private int mSecond;
+    private int mMillisecond;
+
+    public WallClock(TimeZone timeZone) {
+        setTimeZone(timeZone);
+    }
+
+    public void setTimeZone(TimeZone timeZone) {
+        mTimeZone = timeZone;
+        invalidate();
+    }
+
+    public void invalidate() {
+        mOffsetValidFrom = Long.MAX_VALUE;
+        mOffsetValidUntil = Long.MIN_VALUE;
+    }
+
+    public void setTimeInMillis(long millis) {
+        if (millis < mOffsetValidFrom || millis >= mOffsetValidUntil) {
+            updateOffset(millis);
+        }
+        int millisOfDay = (int) floorMod(millis + mOffset, DAY_IN_MILLIS);
+        mMillisecond = millisOfDay % 1000;
+        int secondsOfDay = millisOfDay / 1000;
+        mSecond = secondsOfDay % 60;
+        mMinute = secondsOfDay / 60 % 60;
+        mHourOfDay = secondsOfDay / 3600;
+    }
+
+    /**
+     * Caches the offset at {@code millis} for the day around it, cut off at the transitions of
+     * the time zone within that day. Zones don't change their offset more than once a day.
+     */
+    private void updateOffset(long millis) {
+        mOffset = mTimeZone.getOffset(millis);
+        long validFrom = millis - DAY_IN_MILLIS;
+        if (mTimeZone.getOffset(validFrom) != mOffset) {
+            validFrom = findTransition(validFrom, millis);
+        }
+        long validUntil = millis + DAY_IN_MILLIS;
+        if (mTimeZone.getOffset(validUntil) != mOffset) {
+            validUntil = findTransition(millis, validUntil);
+        }
+        mOffsetValidFrom = validFrom;
+        mOffsetValidUntil = validUntil;
+    }
+
+    /**
+     * Binary search for the first millisecond after {@code before} that has the offset of
+     * {@code after}, given that {@code before} has another offset.
+     */
+    private long findTransition(long before, long after) {
+        int offset = mTimeZone.getOffset(after);
+        while (after - before > 1) {
+            long middle = before + (after - before) / 2;
+            if (mTimeZone.getOffset(middle) == offset) {
+                after = middle;
+            } else {
+                before = middle;
+            }
+        }
+        return after;
+    }
+
+    private static long floorMod(long x, long y) {
+        long mod = x % y;
+        return mod < 0 ? mod + y : mod;
+    }
+
+    /**
+     * Hour of the day from 0 to 23, like {@link java.util.Calendar#HOUR_OF_DAY}.
+     */
+    public int getHourOfDay() {
+        return mHourOfDay;
+    }
+
+    /**
+     * Hour from 0 to 11, like {@link java.util.Calendar#HOUR}.
+     */
+    public int getHour() {
+        return mHourOfDay % 12;
+    }
+
+    public int getMinute() {
+        return mMinute;
+    }
+
+    public int getSecond() {
+        return mSecond;
+    }
+
+    public int getMillisecond() {
+        return mMillisecond;
+    }
+}
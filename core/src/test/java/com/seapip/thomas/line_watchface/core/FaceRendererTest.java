@@ -0,0 +1,89 @@
+package com.seapip.thomas.line_watchface.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class FaceRendererTest {
+    private static final float CENTER = 100;
+    private static final float DELTA = 0.001f;
+    private static final Object PAINT = new Object();
+
+    private final FaceRenderer<Object> mRenderer = new FaceRenderer<>();
+    private final LineSurface mSurface = new LineSurface();
+
+    @Before
+    public void setUp() {
+        mRenderer.setGeometry(false, CENTER, CENTER);
+    }
+
+    @Test
+    public void squareSecondsStartAlongTheTop() {
+        float length = FaceGeometry.getSecondsPathLength(false, CENTER, CENTER);
+        mRenderer.drawSeconds(mSurface, 50 / length, PAINT);
+        assertEquals(1, mSurface.mLines.size());
+        assertArrayEquals(new float[]{98, 1, 148, 1}, mSurface.mLines.get(0), DELTA);
+    }
+
+    @Test
+    public void squareSecondsTurnTheCorners() {
+        float length = FaceGeometry.getSecondsPathLength(false, CENTER, CENTER);
+        /* The top right half and 10 pixels down the right edge. */
+        mRenderer.drawSeconds(mSurface, (101 + 10) / length, PAINT);
+        assertEquals(2, mSurface.mLines.size());
+        assertArrayEquals(new float[]{98, 1, 199, 1}, mSurface.mLines.get(0), DELTA);
+        assertArrayEquals(new float[]{199, 1, 199, 11}, mSurface.mLines.get(1), DELTA);
+    }
+
+    @Test
+    public void squareSecondsCloseAtTheTop() {
+        mRenderer.drawSeconds(mSurface, 1, PAINT);
+        assertEquals(5, mSurface.mLines.size());
+        float drawn = 0;
+        for (float[] line : mSurface.mLines) {
+            drawn += Math.abs(line[2] - line[0]) + Math.abs(line[3] - line[1]);
+        }
+        assertEquals(FaceGeometry.getSecondsPathLength(false, CENTER, CENTER), drawn, DELTA);
+        assertArrayEquals(new float[]{1, 1, 100, 1}, mSurface.mLines.get(4), DELTA);
+    }
+
+    @Test
+    public void roundSecondsAreAnArc() {
+        mRenderer.setGeometry(true, CENTER, CENTER);
+        mRenderer.drawSeconds(mSurface, 0.25f, PAINT);
+        assertEquals(0, mSurface.mLines.size());
+        assertArrayEquals(new float[]{1, 1, 199, 199, -90, 90}, mSurface.mArc, DELTA);
+    }
+
+    private static class LineSurface implements DrawSurface<Object> {
+        private final List<float[]> mLines = new ArrayList<>();
+        private float[] mArc;
+
+        @Override
+        public void drawLine(float startX, float startY, float stopX, float stopY, Object paint) {
+            mLines.add(new float[]{startX, startY, stopX, stopY});
+        }
+
+        @Override
+        public void drawLines(float[] points, int offset, int count, Object paint) {
+            for (int i = offset; i + 3 < offset + count; i += 4) {
+                drawLine(points[i], points[i + 1], points[i + 2], points[i + 3], paint);
+            }
+        }
+
+        @Override
+        public void drawCircle(float centerX, float centerY, float radius, Object paint) {
+        }
+
+        @Override
+        public void drawArc(float left, float top, float right, float bottom, float startAngle,
+                            float sweepAngle, Object paint) {
+            mArc = new float[]{left, top, right, bottom, startAngle, sweepAngle};
+        }
+    }
+}
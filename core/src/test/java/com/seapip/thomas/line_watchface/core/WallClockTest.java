@@ -0,0 +1,103 @@
+package com.seapip.thomas.line_watchface.core;
+
+import org.junit.Test;
+
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+
+public class WallClockTest {
+    private static final long MINUTE = 60 * 1000;
+    private static final long HOUR = 60 * MINUTE;
+
+    /**
+     * Steps the clock through {@code hours} hours from {@code start} a minute and a few odd
+     * milliseconds at a time, checking every step against Calendar.
+     */
+    private static void assertMatchesCalendar(String zone, long start, int hours) {
+        TimeZone timeZone = TimeZone.getTimeZone(zone);
+        WallClock wallClock = new WallClock(timeZone);
+        for (long millis = start; millis < start + hours * HOUR; millis += MINUTE + 7) {
+            assertMatchesCalendar(wallClock, timeZone, millis);
+        }
+    }
+
+    private static void assertMatchesCalendar(WallClock wallClock, TimeZone timeZone, long millis) {
+        Calendar calendar = new GregorianCalendar(timeZone);
+        calendar.setTimeInMillis(millis);
+        wallClock.setTimeInMillis(millis);
+        String at = timeZone.getID() + " at " + millis;
+        assertEquals(at, calendar.get(Calendar.HOUR_OF_DAY), wallClock.getHourOfDay());
+        assertEquals(at, calendar.get(Calendar.HOUR), wallClock.getHour());
+        assertEquals(at, calendar.get(Calendar.MINUTE), wallClock.getMinute());
+        assertEquals(at, calendar.get(Calendar.SECOND), wallClock.getSecond());
+        assertEquals(at, calendar.get(Calendar.MILLISECOND), wallClock.getMillisecond());
+    }
+
+    private static long utc(int year, int month, int day, int hour) {
+        Calendar calendar = new GregorianCalendar(TimeZone.getTimeZone("UTC"));
+        calendar.clear();
+        calendar.set(year, month, day, hour, 0);
+        return calendar.getTimeInMillis();
+    }
+
+    @Test
+    public void springForward() {
+        /* 2017-03-12 02:00 EST became 03:00 EDT, at 07:00 UTC. */
+        assertMatchesCalendar("America/New_York", utc(2017, Calendar.MARCH, 12, 4), 6);
+        /* 2017-03-26 01:00 UTC in Europe. */
+        assertMatchesCalendar("Europe/Amsterdam", utc(2017, Calendar.MARCH, 25, 22), 6);
+    }
+
+    @Test
+    public void fallBack() {
+        /* 2017-11-05 02:00 EDT became 01:00 EST, at 06:00 UTC, so 01:xx happens twice. */
+        assertMatchesCalendar("America/New_York", utc(2017, Calendar.NOVEMBER, 5, 3), 6);
+        assertMatchesCalendar("Europe/Amsterdam", utc(2017, Calendar.OCTOBER, 28, 22), 6);
+    }
+
+    @Test
+    public void halfHourZones() {
+        assertMatchesCalendar("Asia/Kolkata", utc(2017, Calendar.JUNE, 1, 0), 26);
+        assertMatchesCalendar("Asia/Kathmandu", utc(2017, Calendar.JUNE, 1, 0), 26);
+        /* Adelaide moves between +10:30 and +9:30. */
+        assertMatchesCalendar("Australia/Adelaide", utc(2017, Calendar.APRIL, 1, 12), 8);
+        assertMatchesCalendar("Australia/Adelaide", utc(2017, Calendar.SEPTEMBER, 30, 13), 8);
+        /* Lord Howe Island only shifts half an hour. */
+        assertMatchesCalendar("Australia/Lord_Howe", utc(2017, Calendar.APRIL, 1, 12), 8);
+    }
+
+    @Test
+    public void zoneSwitch() {
+        TimeZone newYork = TimeZone.getTimeZone("America/New_York");
+        TimeZone kolkata = TimeZone.getTimeZone("Asia/Kolkata");
+        TimeZone utc = TimeZone.getTimeZone("UTC");
+        WallClock wallClock = new WallClock(newYork);
+        long millis = utc(2017, Calendar.MARCH, 12, 6);
+        assertMatchesCalendar(wallClock, newYork, millis);
+        wallClock.setTimeZone(kolkata);
+        assertMatchesCalendar(wallClock, kolkata, millis);
+        wallClock.setTimeZone(utc);
+        assertMatchesCalendar(wallClock, utc, millis + MINUTE);
+        wallClock.setTimeZone(newYork);
+        assertMatchesCalendar(wallClock, newYork, millis + 2 * HOUR);
+    }
+
+    @Test
+    public void timeSetBackwardsAcrossTransition() {
+        TimeZone timeZone = TimeZone.getTimeZone("America/New_York");
+        WallClock wallClock = new WallClock(timeZone);
+        long transition = utc(2017, Calendar.MARCH, 12, 7);
+        assertMatchesCalendar(wallClock, timeZone, transition + HOUR);
+        assertMatchesCalendar(wallClock, timeZone, transition - 1);
+        assertMatchesCalendar(wallClock, timeZone, transition);
+        assertMatchesCalendar(wallClock, timeZone, transition - 3 * HOUR);
+    }
+
+    @Test
+    public void beforeEpoch() {
+        assertMatchesCalendar("Europe/Amsterdam", -3 * HOUR, 6);
+    }
+}